@@ -0,0 +1,115 @@
+package tn.esprit.devops_project.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tn.esprit.devops_project.DevOps_ProjectSpringBootApplication;
+import tn.esprit.devops_project.entities.ProductCategory;
+import tn.esprit.devops_project.services.Iservices.IInvoiceService;
+import tn.esprit.devops_project.services.Iservices.IProductService;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Boots the application (without the web server) on the "benchmark" profile, i.e. on an in-memory H2 database,
+ * and seeds it with {@link #rows} products, invoices and invoice lines.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkContext {
+
+    static final int STOCKS = 10;
+    static final int OPERATORS = 10;
+    static final int BATCH = 5000;
+    static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    static final int DAYS = 4 * 365;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    public int suppliers;
+    public ConfigurableApplicationContext context;
+    public IProductService productService;
+    public IInvoiceService invoiceService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(DevOps_ProjectSpringBootApplication.class)
+                .profiles("benchmark")
+                .run(arguments());
+        productService = context.getBean(IProductService.class);
+        invoiceService = context.getBean(IInvoiceService.class);
+        suppliers = Math.max(10, rows / 1000);
+        seed(context.getBean(JdbcTemplate.class));
+        invoiceService.rebuildRevenueRollup();
+    }
+
+    protected String[] arguments() {
+        return new String[0];
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        SplittableRandom random = new SplittableRandom(42);
+        ProductCategory[] categories = ProductCategory.values();
+        List<Object[]> batch = new ArrayList<>();
+        for (long i = 1; i <= STOCKS; i++) {
+            batch.add(new Object[]{i, "stock " + i});
+        }
+        flush(jdbc, "insert into stock (id_stock, title) values (?, ?)", batch);
+        for (long i = 1; i <= OPERATORS; i++) {
+            batch.add(new Object[]{i, "fname " + i, "lname " + i, "secret"});
+        }
+        flush(jdbc, "insert into operator (id_operateur, fname, lname, password) values (?, ?, ?, ?)", batch);
+        for (long i = 1; i <= suppliers; i++) {
+            batch.add(new Object[]{i, "S" + i, "supplier " + i, i % 2 == 0 ? "ORDINAIRE" : "CONVENTIONNE"});
+        }
+        flush(jdbc, "insert into supplier (id_supplier, code, label, supplier_category) values (?, ?, ?, ?)", batch);
+
+        String product = "insert into product (id_product, title, price, quantity, category, stock_id_stock) values (?, ?, ?, ?, ?, ?)";
+        String invoice = "insert into invoice (id_invoice, amount_discount, amount_invoice, date_creation_invoice,"
+                + " date_last_modification_invoice, archived, supplier_id_supplier) values (?, ?, ?, ?, ?, ?, ?)";
+        String detail = "insert into invoice_detail (id_invoice_detail, quantity, price, product_id_product, invoice_id_invoice)"
+                + " values (?, ?, ?, ?, ?)";
+        for (long i = 1; i <= rows; i++) {
+            batch.add(new Object[]{i, "product " + i, (float) random.nextInt(1, 1000), random.nextInt(0, 100),
+                    categories[random.nextInt(categories.length)].name(), 1 + i % STOCKS});
+            if (batch.size() == BATCH) {
+                flush(jdbc, product, batch);
+            }
+        }
+        flush(jdbc, product, batch);
+        for (long i = 1; i <= rows; i++) {
+            Date day = Date.valueOf(FIRST_DAY.plusDays(random.nextInt(DAYS)));
+            batch.add(new Object[]{i, 0f, (float) random.nextInt(10, 10000), day, day, random.nextInt(10) == 0,
+                    1 + random.nextInt(suppliers)});
+            if (batch.size() == BATCH) {
+                flush(jdbc, invoice, batch);
+            }
+        }
+        flush(jdbc, invoice, batch);
+        for (long i = 1; i <= rows; i++) {
+            batch.add(new Object[]{i, random.nextInt(1, 10), (float) random.nextInt(1, 1000), 1 + random.nextInt(rows), i});
+            if (batch.size() == BATCH) {
+                flush(jdbc, detail, batch);
+            }
+        }
+        flush(jdbc, detail, batch);
+    }
+
+    private static void flush(JdbcTemplate jdbc, String sql, List<Object[]> batch) {
+        if (!batch.isEmpty()) {
+            jdbc.batchUpdate(sql, batch);
+            batch.clear();
+        }
+    }
+
+}
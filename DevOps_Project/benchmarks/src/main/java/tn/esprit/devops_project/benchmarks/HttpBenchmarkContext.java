@@ -0,0 +1,31 @@
+package tn.esprit.devops_project.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.net.http.HttpClient;
+
+/**
+ * {@link BenchmarkContext} with the embedded Tomcat started on a random port, either on its platform thread pool
+ * or on virtual threads behind the database bulkhead (falls back to platform threads below JDK 21).
+ */
+@State(Scope.Benchmark)
+public class HttpBenchmarkContext extends BenchmarkContext {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    public final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Override
+    protected String[] arguments() {
+        return new String[]{"--spring.main.web-application-type=servlet", "--server.port=0",
+                "--app.virtual-threads.enabled=" + virtualThreads};
+    }
+
+    public String url(String path) {
+        return "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + path;
+    }
+
+}
@@ -0,0 +1,42 @@
+package tn.esprit.devops_project.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-per-request against virtual threads under 200 concurrent clients : compare the throughput and the p99
+ * of the sample-time mode between virtualThreads=false and virtualThreads=true, e.g.
+ * -Djmh.args="-p rows=100000 HttpThroughput"
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(200)
+public class HttpThroughputBenchmark {
+
+    @Benchmark
+    public int invoicesBySupplier(HttpBenchmarkContext data) throws IOException, InterruptedException {
+        long supplier = 1 + ThreadLocalRandom.current().nextInt(data.suppliers);
+        return get(data, "/invoice/supplier/" + supplier + "?size=20");
+    }
+
+    @Benchmark
+    public int productPage(HttpBenchmarkContext data) throws IOException, InterruptedException {
+        long after = ThreadLocalRandom.current().nextLong(data.rows);
+        return get(data, "/product?after=" + after + "&size=50");
+    }
+
+    private static int get(HttpBenchmarkContext data, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(data.url(path))).GET().build();
+        return data.client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+}
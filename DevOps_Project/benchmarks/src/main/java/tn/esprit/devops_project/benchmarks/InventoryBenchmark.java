@@ -0,0 +1,30 @@
+package tn.esprit.devops_project.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import tn.esprit.devops_project.dto.ProductQuantity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 64 clients reserving and releasing the same product, e.g. -Djmh.args="-p rows=10000 Inventory"
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(64)
+public class InventoryBenchmark {
+
+    @Benchmark
+    public ProductQuantity reserve(InventoryBenchmarkContext data) {
+        return data.productService.reserveQuantity(InventoryBenchmarkContext.HOT_PRODUCT, 1);
+    }
+
+    @Benchmark
+    public ProductQuantity reserveThenRelease(InventoryBenchmarkContext data) {
+        data.productService.reserveQuantity(InventoryBenchmarkContext.HOT_PRODUCT, 1);
+        return data.productService.releaseQuantity(InventoryBenchmarkContext.HOT_PRODUCT, 1);
+    }
+
+}
@@ -0,0 +1,29 @@
+package tn.esprit.devops_project.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * {@link BenchmarkContext} with the inventory in the given durability mode and one hot product holding enough
+ * quantity for the whole run.
+ */
+@State(Scope.Benchmark)
+public class InventoryBenchmarkContext extends BenchmarkContext {
+
+    static final long HOT_PRODUCT = 1;
+
+    @Param({"WRITE_THROUGH", "WRITE_BEHIND"})
+    public String durability;
+
+    @Override
+    protected String[] arguments() {
+        return new String[]{"--app.inventory.durability=" + durability};
+    }
+
+    @Setup(Level.Trial)
+    public void stockHotProduct() {
+        context.getBean(JdbcTemplate.class).update("update product set quantity = ? where id_product = ?",
+                Integer.MAX_VALUE / 2, HOT_PRODUCT);
+    }
+
+}
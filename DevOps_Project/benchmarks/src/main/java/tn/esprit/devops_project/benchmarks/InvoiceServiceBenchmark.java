@@ -0,0 +1,66 @@
+package tn.esprit.devops_project.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import tn.esprit.devops_project.dto.InvoiceView;
+import tn.esprit.devops_project.dto.ProductSales;
+import tn.esprit.devops_project.dto.TopSalesReport;
+import tn.esprit.devops_project.repositories.InvoiceDetailRepository;
+
+import java.sql.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InvoiceServiceBenchmark {
+
+    @Benchmark
+    public List<InvoiceView> getInvoicesBySupplier(BenchmarkContext data) {
+        long supplier = 1 + ThreadLocalRandom.current().nextInt(data.suppliers);
+        return data.invoiceService.getInvoicesBySupplier(supplier, null, 100);
+    }
+
+    // one year window anywhere in the seeded four years
+    @Benchmark
+    public float getTotalAmountInvoiceBetweenDates(BenchmarkContext data) {
+        int offset = ThreadLocalRandom.current().nextInt(BenchmarkContext.DAYS - 365);
+        return data.invoiceService.getTotalAmountInvoiceBetweenDates(
+                Date.valueOf(BenchmarkContext.FIRST_DAY.plusDays(offset)),
+                Date.valueOf(BenchmarkContext.FIRST_DAY.plusDays(offset + 365L)));
+    }
+
+    // a dashboard asks for the same few closed periods : one year windows starting every 30 days, all cached after warmup
+    @Benchmark
+    public TopSalesReport getTopSales(BenchmarkContext data) {
+        int offset = 30 * ThreadLocalRandom.current().nextInt((BenchmarkContext.DAYS - 365) / 30);
+        return data.invoiceService.getTopSales(Date.valueOf(BenchmarkContext.FIRST_DAY.plusDays(offset)),
+                Date.valueOf(BenchmarkContext.FIRST_DAY.plusDays(offset + 365L)), null, 10);
+    }
+
+    // the grouped aggregate behind it, without the cache
+    @Benchmark
+    public List<ProductSales> getTopProductsByRevenue(BenchmarkContext data) {
+        int offset = ThreadLocalRandom.current().nextInt(BenchmarkContext.DAYS - 365);
+        return data.context.getBean(InvoiceDetailRepository.class).getTopProductsByRevenue(
+                Date.valueOf(BenchmarkContext.FIRST_DAY.plusDays(offset)),
+                Date.valueOf(BenchmarkContext.FIRST_DAY.plusDays(offset + 365L)), null, PageRequest.of(0, 10));
+    }
+
+    // the operator/invoice join table allows one operator per invoice : always pick the same operator for an invoice
+    @Benchmark
+    public void assignOperatorToInvoice(BenchmarkContext data) {
+        long invoice = 1L + ThreadLocalRandom.current().nextInt(data.rows);
+        data.invoiceService.assignOperatorToInvoice(1L + invoice % BenchmarkContext.OPERATORS, invoice);
+    }
+
+    @Benchmark
+    public void cancelInvoice(BenchmarkContext data) {
+        data.invoiceService.cancelInvoice(1L + ThreadLocalRandom.current().nextInt(data.rows));
+    }
+
+}
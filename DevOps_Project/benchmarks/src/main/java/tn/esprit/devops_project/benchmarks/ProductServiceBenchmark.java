@@ -0,0 +1,30 @@
+package tn.esprit.devops_project.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import tn.esprit.devops_project.entities.Product;
+import tn.esprit.devops_project.entities.ProductCategory;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ProductServiceBenchmark {
+
+    @Benchmark
+    public List<Product> retreiveAllProduct(BenchmarkContext data) {
+        long after = ThreadLocalRandom.current().nextLong(data.rows);
+        return data.productService.retreiveAllProduct(after, 100);
+    }
+
+    @Benchmark
+    public List<Product> retrieveProductByCategory(BenchmarkContext data) {
+        ProductCategory[] categories = ProductCategory.values();
+        return data.productService.retrieveProductByCategory(categories[ThreadLocalRandom.current().nextInt(categories.length)]);
+    }
+
+}
@@ -0,0 +1,67 @@
+package tn.esprit.devops_project.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from the launch of a JVM running the application to its exit once ready (app.startup.exit-when-ready),
+ * on an in-memory H2 database, with the default configuration, the fast-startup profile, and the fast-startup profile
+ * with the AppCDS archive. Runs the jar and archive of the appcds Maven profile : mvn -Pappcds verify in ../ first,
+ * -Dappcds.directory points elsewhere.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+
+    static final String JAR = "DevOps_Project-1.0-appcds.jar";
+    static final String ARCHIVE = "application.jsa";
+
+    @Param({"default", "fast-startup", "fast-startup-appcds"})
+    public String configuration;
+
+    private List<String> command;
+    private File directory;
+
+    @Setup(Level.Trial)
+    public void start() {
+        directory = new File(System.getProperty("appcds.directory", "../target/appcds"));
+        if (!new File(directory, JAR).isFile() || !new File(directory, ARCHIVE).isFile()) {
+            throw new IllegalArgumentException("No " + JAR + " and " + ARCHIVE + " in " + directory.getAbsolutePath());
+        }
+        command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        if (configuration.endsWith("-appcds")) {
+            command.add("-XX:SharedArchiveFile=" + ARCHIVE);
+        }
+        command.add("-jar");
+        command.add(JAR);
+        if (configuration.startsWith("fast-startup")) {
+            command.add("--spring.profiles.active=fast-startup");
+        }
+        command.add("--spring.datasource.url=jdbc:h2:mem:startup;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+        command.add("--server.port=0");
+        command.add("--app.startup.exit-when-ready=true");
+    }
+
+    @Benchmark
+    public int boot() throws Exception {
+        Process process = new ProcessBuilder(command).directory(directory)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        int status = process.waitFor();
+        if (status != 0) {
+            throw new IllegalStateException(configuration + " exited with status " + status);
+        }
+        return status;
+    }
+
+}
@@ -0,0 +1,24 @@
+package tn.esprit.devops_project.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Read-through caches of the single entity lookups and of the sales rankings of closed periods. The entries are read
+ * models (ProductView, StockView...) shared by every thread : never the managed, mutable JPA entities.
+ * Size, TTL and statistics are set by spring.cache.caffeine.spec, hit/miss/eviction counters are published under the
+ * actuator cache.* metrics.
+ * The lookups filling a cache run in read-write transactions, which {@link ReplicaRoutingDataSource} sends to the primary :
+ * filled from a lagging replica, an entry would keep the row its write just evicted it for until it expires.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRODUCTS = "products";
+    public static final String STOCKS = "stocks";
+    public static final String SUPPLIERS = "suppliers";
+    public static final String OPERATORS = "operators";
+    public static final String TOP_SALES = "topSales";
+
+}
@@ -0,0 +1,93 @@
+package tn.esprit.devops_project.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Per-request SQL statement counting on top of the http.server.requests timers: every request records how many
+ * statements it ran, and the ones repeating the same statement at least app.metrics.n-plus-one-threshold times
+ * are logged and counted as N+1 suspects.
+ * An asynchronous request (SSE, streamed body, Callable) is recorded when its handler returns, with the statements of
+ * the handler : the ones run afterwards on another thread are not counted, and its async dispatch records nothing.
+ */
+@Slf4j
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    private final MeterRegistry meterRegistry;
+    private final int nPlusOneThreshold;
+
+    public MetricsConfig(MeterRegistry meterRegistry, @Value("${app.metrics.n-plus-one-threshold:10}") int nPlusOneThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCounter());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AsyncHandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (request.getDispatcherType() != DispatcherType.ASYNC) {
+                    QueryCounter.start();
+                }
+                return true;
+            }
+
+            // instead of afterCompletion on the request thread, which goes back to the pool with the count still set
+            @Override
+            public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                record(request, QueryCounter.stop());
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+                if (request.getDispatcherType() != DispatcherType.ASYNC) {
+                    record(request, QueryCounter.stop());
+                }
+            }
+        });
+    }
+
+    private void record(HttpServletRequest request, QueryCounter.Count count) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder("http.server.requests.queries")
+                .description("SQL statements run per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(count.total);
+        if (count.mostRepeated >= nPlusOneThreshold) {
+            Counter.builder("http.server.requests.n_plus_one")
+                    .description("Requests running the same SQL statement at least the N+1 threshold times")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("Possible N+1 on {} {} : {} statements, {} times : {}", request.getMethod(), uri,
+                    count.total, count.mostRepeated, count.mostRepeatedSql);
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package tn.esprit.devops_project.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between {@link #start()} and {@link #stop()}.
+ * The same statement prepared again and again within one request is the signature of an N+1 select.
+ */
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<Map<String, Integer>> STATEMENTS = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        Map<String, Integer> statements = STATEMENTS.get();
+        if (statements != null) {
+            statements.merge(sql, 1, Integer::sum);
+        }
+        return sql;
+    }
+
+    public static void start() {
+        STATEMENTS.set(new HashMap<>());
+    }
+
+    public static Count stop() {
+        Map<String, Integer> statements = STATEMENTS.get();
+        STATEMENTS.remove();
+        Count count = new Count();
+        if (statements != null) {
+            statements.forEach((sql, times) -> {
+                count.total += times;
+                if (times > count.mostRepeated) {
+                    count.mostRepeated = times;
+                    count.mostRepeatedSql = sql;
+                }
+            });
+        }
+        return count;
+    }
+
+    public static class Count {
+
+        int total;
+        int mostRepeated;
+        String mostRepeatedSql;
+
+    }
+
+}
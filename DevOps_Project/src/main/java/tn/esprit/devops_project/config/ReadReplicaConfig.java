@@ -0,0 +1,72 @@
+package tn.esprit.devops_project.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single spring.datasource pool by a {@link ReplicaRoutingDataSource} over the primary and the
+ * app.replicas.urls pools, and carries the read-your-writes window of each client in a cookie ({@link ReadYourWrites}).
+ * The Flyway migrations run on the primary only.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.replicas", name = "urls")
+public class ReadReplicaConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                             DataSourceProperties dataSourceProperties,
+                                                             ReplicaProperties properties) {
+        String username = properties.getUsername() == null ? dataSourceProperties.determineUsername() : properties.getUsername();
+        String password = properties.getPassword() == null ? dataSourceProperties.determinePassword() : properties.getPassword();
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : properties.getUrls()) {
+            if (properties.isMigrate()) {
+                Flyway.configure().dataSource(url, username, password).load().migrate();
+            }
+            // not started here : a replica down at boot is only left out
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setJdbcUrl(url);
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, properties);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWrites> readYourWrites(ReplicaProperties properties) {
+        FilterRegistrationBean<ReadYourWrites> registration = new FilterRegistrationBean<>(new ReadYourWrites(properties.getMaxStaleness()));
+        registration.setName("readYourWrites");
+        return registration;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+}
@@ -0,0 +1,95 @@
+package tn.esprit.devops_project.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Read-your-writes window of the client of the current request, for {@link ReplicaRoutingDataSource} : the commit time
+ * of its last write travels in the last-write cookie, so its reads stay on the primary for max-staleness after it,
+ * whichever instance serves them, while the writes of the other clients leave its reads on the replicas.
+ * The instances compare the cookie with their own clock : their clocks must agree well within max-staleness.
+ * Only the request thread is covered : the body of a streamed response, written on another thread, may read a replica.
+ */
+public class ReadYourWrites extends OncePerRequestFilter {
+
+    static final String COOKIE = "last-write";
+
+    private static final ThreadLocal<Client> CLIENT = new ThreadLocal<>();
+
+    private final int cookieMaxAge;
+
+    public ReadYourWrites(Duration maxStaleness) {
+        // whole seconds, rounded up : the cookie outlives the window rather than the other way round
+        this.cookieMaxAge = (int) Math.max(1, (maxStaleness.toMillis() + 999) / 1000);
+    }
+
+    // commit time of the last write of the current client, 0 without one or outside a request
+    public static long lastWriteMillis() {
+        Client client = CLIENT.get();
+        return client == null ? 0 : client.lastWrite;
+    }
+
+    // called once a write of the current request has committed
+    public static void written() {
+        Client client = CLIENT.get();
+        if (client == null) {
+            return;
+        }
+        client.lastWrite = System.currentTimeMillis();
+        if (!client.response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(client.lastWrite));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge(client.cookieMaxAge);
+            client.response.addCookie(cookie);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CLIENT.set(new Client(response, cookieMaxAge, lastWrite(request)));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            CLIENT.remove();
+        }
+    }
+
+    private static long lastWrite(HttpServletRequest request) {
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (COOKIE.equals(cookie.getName())) {
+                    try {
+                        return Long.parseLong(cookie.getValue());
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static final class Client {
+
+        final HttpServletResponse response;
+        final int cookieMaxAge;
+        long lastWrite;
+
+        Client(HttpServletResponse response, int cookieMaxAge, long lastWrite) {
+            this.response = response;
+            this.cookieMaxAge = cookieMaxAge;
+            this.lastWrite = lastWrite;
+        }
+
+    }
+
+}
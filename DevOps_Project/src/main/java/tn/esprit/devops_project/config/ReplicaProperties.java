@@ -0,0 +1,35 @@
+package tn.esprit.devops_project.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas of the spring.datasource database, see {@link ReplicaRoutingDataSource}.
+ * Routing is on as soon as app.replicas.urls is set.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "app.replicas")
+public class ReplicaProperties {
+
+    // comma separated JDBC urls
+    private List<String> urls = new ArrayList<>();
+    // spring.datasource.username / password when not set
+    private String username;
+    private String password;
+    // a replica further behind is left out, and the reads of a client stay on the primary that long after its write
+    private Duration maxStaleness = Duration.ofSeconds(2);
+    private Duration checkInterval = Duration.ofSeconds(5);
+    // seconds behind the primary : the Seconds_Behind_Source (or _Master) column if there is one, else the first one
+    private String lagQuery = "SHOW REPLICA STATUS";
+    // nothing feeds an embedded replica : the local profile applies the schema migrations to it as well
+    private boolean migrate;
+
+}
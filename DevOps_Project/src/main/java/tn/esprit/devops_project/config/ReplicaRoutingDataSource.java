@@ -0,0 +1,164 @@
+package tn.esprit.devops_project.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends the connections of read-only transactions to the replicas, round robin, and every other one to the primary :
+ * <ul>
+ * <li>a replica whose lag (app.replicas.lag-query, every app.replicas.check-interval) exceeds app.replicas.max-staleness,
+ * or which does not answer, is left out until it catches up;</li>
+ * <li>for max-staleness after a write of the client of the current request (see {@link ReadYourWrites}) its reads
+ * stay on the primary, the replicas may not have the write yet : a client reads its own writes, on any instance, and
+ * the writes of the other clients do not keep it off the replicas;</li>
+ * <li>without any usable replica, reads go to the primary.</li>
+ * </ul>
+ * The transaction is only known to be read-only once it has begun, so this data source sits behind a
+ * LazyConnectionDataSourceProxy, which takes the connection at the first statement.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder, Closeable {
+
+    static final String PRIMARY = "primary";
+    static final String[] LAG_COLUMNS = {"Seconds_Behind_Source", "Seconds_Behind_Master"};
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxStalenessMillis;
+    private final String lagQuery;
+    private final Map<String, LongAdder> routes = new HashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService checker;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources, ReplicaProperties properties) {
+        this.maxStalenessMillis = properties.getMaxStaleness().toMillis();
+        this.lagQuery = properties.getLagQuery();
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            Replica replica = new Replica("replica-" + i, replicaDataSources.get(i));
+            replicas.add(replica);
+            targets.put(replica.name, replica.dataSource);
+        }
+        targets.keySet().forEach(target -> routes.put((String) target, new LongAdder()));
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+        checkReplicas();
+        checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getCheckInterval().toMillis();
+        checker.scheduleWithFixedDelay(this::checkReplicas, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || System.currentTimeMillis() - ReadYourWrites.lastWriteMillis() < maxStalenessMillis) {
+            return route(PRIMARY);
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.usable) {
+                return route(replica.name);
+            }
+        }
+        return route(PRIMARY);
+    }
+
+    // bound by the meter registry itself : the data source cannot depend on it, the registry binds the pool metrics
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        routes.forEach((target, count) -> FunctionCounter.builder("datasource.routes", count, LongAdder::sum)
+                .description("Connections handed out per database").tag("target", target).register(registry));
+    }
+
+    private String route(String target) {
+        routes.get(target).increment();
+        return target;
+    }
+
+    private void checkReplicas() {
+        for (Replica replica : replicas) {
+            Double lag = null;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery(lagQuery)) {
+                lag = lagSeconds(result);
+            } catch (SQLException e) {
+                log.debug("Replica {} lag check failed", replica.name, e);
+            }
+            // null : replication stopped, or not a replica at all
+            boolean usable = lag != null && lag * 1000 <= maxStalenessMillis;
+            if (usable && !replica.usable) {
+                log.info("Replica {} in use (lag {} s)", replica.name, lag);
+            } else if (!usable && replica.usable) {
+                log.warn("Replica {} left out (lag {} s)", replica.name, lag);
+            }
+            replica.usable = usable;
+        }
+    }
+
+    private static Double lagSeconds(ResultSet result) throws SQLException {
+        if (!result.next()) {
+            return null;
+        }
+        ResultSetMetaData metaData = result.getMetaData();
+        int column = 1;
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            for (String name : LAG_COLUMNS) {
+                if (name.equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                    column = i;
+                }
+            }
+        }
+        Object lag = result.getObject(column);
+        return lag == null ? null : Double.valueOf(lag.toString());
+    }
+
+    @Override
+    public void close() throws IOException {
+        checker.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable) {
+                ((Closeable) replica.dataSource).close();
+            }
+        }
+    }
+
+    private static final class Replica {
+
+        final String name;
+        final DataSource dataSource;
+        volatile boolean usable;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+    }
+
+}
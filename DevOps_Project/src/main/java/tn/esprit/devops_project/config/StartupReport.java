@@ -0,0 +1,46 @@
+package tn.esprit.devops_project.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+/**
+ * Logs the time from the JVM start to the application ready to serve, class loading included, which the
+ * "Started ... in" line leaves out. With app.startup.exit-when-ready the application exits right after, with status 1
+ * when it took longer than app.startup.budget : the startup check of the verify phase (startup-budget in pom.xml) and
+ * the training run of the AppCDS archive (appcds Maven profile) boot it that way.
+ */
+@Slf4j
+@Component
+public class StartupReport {
+
+    private final boolean exitWhenReady;
+    private final Duration budget;
+
+    public StartupReport(@Value("${app.startup.exit-when-ready:false}") boolean exitWhenReady,
+                         @Value("${app.startup.budget:0}") Duration budget) {
+        this.exitWhenReady = exitWhenReady;
+        this.budget = budget;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready(ApplicationReadyEvent event) {
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        log.info("Startup : ready {} ms after JVM start", uptime);
+        // zero : no budget
+        boolean overBudget = !budget.isZero() && uptime > budget.toMillis();
+        if (overBudget) {
+            log.error("Startup : {} ms over the budget of {} ms", uptime - budget.toMillis(), budget.toMillis());
+        }
+        if (exitWhenReady) {
+            System.exit(SpringApplication.exit(event.getApplicationContext(), () -> overBudget ? 1 : 0));
+        }
+    }
+
+}
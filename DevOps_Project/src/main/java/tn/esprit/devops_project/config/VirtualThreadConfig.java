@@ -0,0 +1,169 @@
+package tn.esprit.devops_project.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Opt-in (app.virtual-threads.enabled=true) execution of the requests on virtual threads instead of the Tomcat
+ * platform thread pool. Needs a JDK with virtual threads (21+); the executor is looked up by reflection so the
+ * project still builds and runs on Java 11, falling back to platform threads.
+ * <p>
+ * Virtual threads remove the thread pool limit, so a bulkhead takes its place in front of the database : at most
+ * as many requests as Hikari has connections (spring.datasource.hikari.maximum-pool-size) run at once, the others wait
+ * up to app.virtual-threads.bulkhead-timeout and are then rejected with 503.
+ * Only the endpoints reading the database take a permit : not the change feeds, served from memory for as long as the
+ * client stays connected, nor actuator and the API docs. An asynchronous request (streamed body) keeps its permit
+ * until it completes, errors or times out, its database work running on another thread after the handler returns.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+    static final String[] DATABASE_ENDPOINTS = {"/invoice", "/invoice/*", "/operator", "/operator/*", "/operatot/*",
+            "/product", "/product/*", "/productCategoy/*", "/stock", "/stock/*", "/supplier", "/supplier/*"};
+    static final String CHANGE_FEED_SUFFIX = "/changes";
+
+    private final ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (virtualThreads != null) {
+                protocolHandler.setExecutor(virtualThreads);
+            }
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (virtualThreads != null) {
+            configurer.setTaskExecutor(new TaskExecutorAdapter(virtualThreads));
+        }
+    }
+
+    @Bean
+    // the pool size from the property, not the data source : behind the replica routing, the bean is a proxy
+    public FilterRegistrationBean<OncePerRequestFilter> databaseBulkhead(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int permits,
+                                                                        @Value("${app.virtual-threads.bulkhead-timeout:5s}") Duration timeout) {
+        Semaphore bulkhead = new Semaphore(permits, true);
+        log.info("Database bulkhead : {} concurrent requests", permits);
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(new OncePerRequestFilter() {
+            @Override
+            protected boolean shouldNotFilter(HttpServletRequest request) {
+                return request.getRequestURI().endsWith(CHANGE_FEED_SUFFIX);
+            }
+
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                    throws ServletException, IOException {
+                boolean acquired;
+                try {
+                    acquired = bulkhead.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    acquired = false;
+                }
+                if (!acquired) {
+                    response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Database bulkhead full");
+                    return;
+                }
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    if (request.isAsyncStarted()) {
+                        request.getAsyncContext().addListener(new PermitRelease(bulkhead));
+                    } else {
+                        bulkhead.release();
+                    }
+                }
+            }
+        });
+        registration.addUrlPatterns(DATABASE_ENDPOINTS);
+        registration.setName("databaseBulkhead");
+        return registration;
+    }
+
+    // once per request : an error or a timeout is followed by the completion
+    private static final class PermitRelease implements AsyncListener {
+
+        private final Semaphore bulkhead;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PermitRelease(Semaphore bulkhead) {
+            this.bulkhead = bulkhead;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        // a new asynchronous cycle drops the listeners of the previous one
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                bulkhead.release();
+            }
+        }
+
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (virtualThreads != null) {
+            virtualThreads.shutdown();
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            log.info("Requests run on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads need JDK 21+, requests stay on the platform thread pool ({})", Runtime.version());
+            return null;
+        }
+    }
+
+}
@@ -1,38 +1,132 @@
 package tn.esprit.devops_project.controllers;
 
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import tn.esprit.devops_project.entities.Invoice;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.devops_project.dto.BatchEntry;
+import tn.esprit.devops_project.dto.BulkCancelReport;
+import tn.esprit.devops_project.dto.BulkCancelRequest;
+import tn.esprit.devops_project.dto.InvoiceArchiveReport;
+import tn.esprit.devops_project.dto.InvoiceLine;
+import tn.esprit.devops_project.dto.InvoiceView;
+import tn.esprit.devops_project.dto.OperatorAssignmentReport;
+import tn.esprit.devops_project.dto.RevenueRollupReport;
+import tn.esprit.devops_project.dto.TopSalesReport;
 import tn.esprit.devops_project.services.Iservices.IInvoiceService;
+import tn.esprit.devops_project.services.InvoiceArchiveJob;
+import tn.esprit.devops_project.services.TableVersions;
 
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 
 
 @RestController
 @AllArgsConstructor
 public class InvoiceController {
 
+    static final String EXPORT_HEADER = "idInvoice,dateCreationInvoice,idSupplier,amountInvoice,amountDiscount,archived,"
+            + "idInvoiceDetail,idProduct,product,quantity,price";
+    static final int EXPORT_BUFFER = 64 * 1024;
+
     IInvoiceService invoiceService;
+    TableVersions tableVersions;
+    InvoiceArchiveJob invoiceArchiveJob;
 
     @GetMapping("/invoice")
-    public List<Invoice> getInvoices() {
+    public List<InvoiceView> getInvoices(WebRequest request) {
+        // the invoice views embed their products
+        if (request.checkNotModified(tableVersions.etag(TableVersions.INVOICE, TableVersions.PRODUCT))) {
+            return null;
+        }
        return invoiceService.retrieveAllInvoices();
     }
 
     @GetMapping("/invoice/{invoiceId}")
-    public Invoice retrieveInvoice(@PathVariable Long invoiceId) {
+    public InvoiceView retrieveInvoice(@PathVariable Long invoiceId) {
         return invoiceService.retrieveInvoice(invoiceId);
     }
 
+    // archived invoices included, moved to the archive tables or not
+    @GetMapping("/invoice/batch")
+    public List<BatchEntry<InvoiceView>> retrieveInvoices(@RequestParam List<Long> ids) {
+        return invoiceService.retrieveInvoices(ids);
+    }
+
+    // one CSV row per invoice line, written as the cursor advances. gzip=true for an invoices.csv.gz file, the
+    // plain CSV is otherwise compressed on the fly for the clients sending Accept-Encoding: gzip
+    @GetMapping("/invoice/export")
+    public ResponseEntity<StreamingResponseBody> exportInvoiceLines(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date startDate,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date endDate,
+                                                                    @RequestParam(required = false) Long supplierId,
+                                                                    @RequestParam(defaultValue = "false") boolean gzip) {
+        // before the body : once it streams, the 200 and the attachment headers are sent
+        try {
+            invoiceService.checkExport(startDate, endDate, supplierId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (NullPointerException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+        StreamingResponseBody body = out -> {
+            OutputStream stream = gzip ? new GZIPOutputStream(out, EXPORT_BUFFER) : out;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), EXPORT_BUFFER);
+            writer.write(EXPORT_HEADER);
+            writer.write('\n');
+            invoiceService.exportInvoiceLines(startDate, endDate, supplierId, csv(writer));
+            writer.flush();
+            if (stream instanceof GZIPOutputStream) {
+                ((GZIPOutputStream) stream).finish();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : MediaType.parseMediaType("text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(gzip ? "invoices.csv.gz" : "invoices.csv").build().toString())
+                .body(body);
+    }
+
     @PutMapping("/invoice/{invoiceId}")
     public void cancelInvoice(@PathVariable Long invoiceId) {
         invoiceService.cancelInvoice(invoiceId);
     }
 
+    @PutMapping("/invoice/cancel")
+    public BulkCancelReport cancelInvoices(@RequestBody BulkCancelRequest request) {
+        return invoiceService.cancelInvoices(request);
+    }
+
+    // without a date, the invoices older than app.archive.min-age
+    @PostMapping("/invoice/archive")
+    public InvoiceArchiveReport archiveInvoices(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date createdBefore,
+                                                @RequestParam(defaultValue = "1000") int chunkSize) {
+        try {
+            return invoiceArchiveJob.run(createdBefore == null ? invoiceArchiveJob.cutoff() : createdBefore, chunkSize);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
     @GetMapping("/invoice/supplier/{supplierId}")
-    public List<Invoice> getInvoicesBySupplier(@PathVariable Long supplierId) {
-        return invoiceService.getInvoicesBySupplier(supplierId);
+    public List<InvoiceView> getInvoicesBySupplier(@PathVariable Long supplierId,
+                                               @RequestParam(required = false) Long after,
+                                               @RequestParam(defaultValue = "100") int size, WebRequest request) {
+        if (request.checkNotModified(tableVersions.etag(TableVersions.INVOICE, TableVersions.PRODUCT))) {
+            return null;
+        }
+        return invoiceService.getInvoicesBySupplier(supplierId, after, size);
     }
 
     @PutMapping(value = "/invoice/operator/{idOperator}/{idInvoice}")
@@ -40,10 +134,67 @@ public class InvoiceController {
         invoiceService.assignOperatorToInvoice(idOperator, idInvoice);
     }
 
+    @PutMapping("/invoice/operator/{idOperator}")
+    public OperatorAssignmentReport assignOperatorToInvoices(@PathVariable Long idOperator, @RequestBody List<Long> invoiceIds) {
+        return invoiceService.assignOperatorToInvoices(idOperator, invoiceIds);
+    }
+
     @GetMapping("/invoice/price/{startDate}/{endDate}")
-    public float getTotalAmountInvoiceBetweenDates(@PathVariable Date startDate,@PathVariable Date endDate){
+    public float getTotalAmountInvoiceBetweenDates(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date startDate,
+                                            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date endDate){
         return invoiceService.getTotalAmountInvoiceBetweenDates(startDate, endDate);
     }
 
+    @PostMapping("/invoice/price/rollup")
+    public int rebuildRevenueRollup() {
+        return invoiceService.rebuildRevenueRollup();
+    }
+
+    @GetMapping("/invoice/price/rollup")
+    public RevenueRollupReport verifyRevenueRollup() {
+        return invoiceService.verifyRevenueRollup();
+    }
+
+    @GetMapping("/invoice/sales/top")
+    public TopSalesReport getTopSales(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date startDate,
+                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date endDate,
+                                      @RequestParam(required = false) Long supplierId,
+                                      @RequestParam(defaultValue = "10") int limit) {
+        return invoiceService.getTopSales(startDate, endDate, supplierId, limit);
+    }
+
+    private static Consumer<InvoiceLine> csv(Writer writer) {
+        return line -> {
+            try {
+                writer.write(line.getIdInvoice() + "," + value(line.getDateCreationInvoice()) + "," + value(line.getIdSupplier())
+                        + "," + amount(line.getAmountInvoice()) + "," + amount(line.getAmountDiscount()) + "," + value(line.getArchived())
+                        + "," + value(line.getIdInvoiceDetail()) + "," + value(line.getIdProduct()) + "," + text(line.getProductTitle())
+                        + "," + value(line.getQuantity()) + "," + amount(line.getPrice()) + "\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static String value(Object value) {
+        if (value instanceof Date) {
+            // yyyy-MM-dd, in the time zone the date was read in
+            return new java.sql.Date(((Date) value).getTime()).toString();
+        }
+        return value == null ? "" : value.toString();
+    }
+
+    // plain notation : Float.toString writes 1.0E7
+    private static String amount(Float value) {
+        return value == null ? "" : new BigDecimal(value.toString()).toPlainString();
+    }
+
+    private static String text(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")
+                ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
 
 }
@@ -2,8 +2,12 @@ package tn.esprit.devops_project.controllers;
 
 import lombok.AllArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import tn.esprit.devops_project.dto.OperatorView;
+import tn.esprit.devops_project.dto.OperatorWorkload;
 import tn.esprit.devops_project.entities.Operator;
 import tn.esprit.devops_project.services.Iservices.IOperatorService;
+import tn.esprit.devops_project.services.TableVersions;
 
 import java.util.List;
 
@@ -12,17 +16,31 @@ import java.util.List;
 public class OperatorController {
 
 	IOperatorService operatorService;
+	TableVersions tableVersions;
 	
 	@GetMapping("/operator")
-	public List<Operator> getOperators() {
+	public List<Operator> getOperators(WebRequest request) {
+		if (request.checkNotModified(tableVersions.etag(TableVersions.OPERATOR))) {
+			return null;
+		}
 		return operatorService.retrieveAllOperators();
 	}
 
 	@GetMapping("/operator/{operatorId}")
-	public Operator retrieveoperator(@PathVariable Long operatorId) {
+	public OperatorView retrieveoperator(@PathVariable Long operatorId) {
 		return operatorService.retrieveOperator(operatorId);
 	}
 
+	@GetMapping("/operator/workload")
+	public List<OperatorWorkload> getOperatorsWorkload() {
+		return operatorService.retrieveOperatorWorkload(null);
+	}
+
+	@GetMapping("/operator/{operatorId}/workload")
+	public List<OperatorWorkload> getOperatorWorkload(@PathVariable Long operatorId) {
+		return operatorService.retrieveOperatorWorkload(operatorId);
+	}
+
 	@PostMapping("/operator")
 	public Operator addOperator(@RequestBody Operator operator) {
 		return operatorService.addOperator(operator);
@@ -1,12 +1,28 @@
 package tn.esprit.devops_project.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.devops_project.dto.BatchEntry;
+import tn.esprit.devops_project.dto.ProductImportReport;
+import tn.esprit.devops_project.dto.ProductQuantity;
+import tn.esprit.devops_project.dto.ProductView;
 import tn.esprit.devops_project.entities.Product;
 import tn.esprit.devops_project.entities.ProductCategory;
+import tn.esprit.devops_project.services.ChangeFeed;
 import tn.esprit.devops_project.services.Iservices.IProductService;
+import tn.esprit.devops_project.services.TableVersions;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.function.Consumer;
 
 @RestController
 @AllArgsConstructor
@@ -14,24 +30,86 @@ import java.util.List;
 public class ProductController {
 
     private final IProductService productService;
+    private final ObjectMapper objectMapper;
+    private final TableVersions tableVersions;
+    private final ChangeFeed changeFeed;
 
     @PostMapping("/product/{idStock}")
     Product addProduct(@RequestBody Product product,@PathVariable Long idStock){
         return productService.addProduct(product,idStock);
     }
 
+    @PostMapping(value = "/product/import", consumes = "text/csv")
+    ProductImportReport importProductsCsv(BufferedReader reader,
+                                          @RequestParam(defaultValue = "1000") int batchSize) throws IOException {
+        return productService.importProducts(reader, false, batchSize);
+    }
+
+    @PostMapping(value = "/product/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    ProductImportReport importProductsNdjson(BufferedReader reader,
+                                             @RequestParam(defaultValue = "1000") int batchSize) throws IOException {
+        return productService.importProducts(reader, true, batchSize);
+    }
+
+    @PutMapping("/product/{id}/reserve")
+    ProductQuantity reserveQuantity(@PathVariable Long id, @RequestParam(defaultValue = "1") int quantity){
+        return productService.reserveQuantity(id, quantity);
+    }
+
+    @PutMapping("/product/{id}/release")
+    ProductQuantity releaseQuantity(@PathVariable Long id, @RequestParam(defaultValue = "1") int quantity){
+        return productService.releaseQuantity(id, quantity);
+    }
+
     @GetMapping("/product/{id}")
-    Product retrieveProduct(@PathVariable Long id){
+    ProductView retrieveProduct(@PathVariable Long id){
         return productService.retrieveProduct(id);
     }
 
+    // /product/batch?ids=3,1,2 : one entry per distinct id, in request order, found or not
+    @GetMapping("/product/batch")
+    List<BatchEntry<ProductView>> retrieveProducts(@RequestParam List<Long> ids){
+        return productService.retrieveProducts(ids);
+    }
+
     @GetMapping("/product")
-    List<Product> retreiveAllProduct(){
-        return productService.retreiveAllProduct();
+    List<Product> retreiveAllProduct(@RequestParam(required = false) Long after,
+                                     @RequestParam(defaultValue = "100") int size, WebRequest request){
+        if (request.checkNotModified(tableVersions.etag(TableVersions.PRODUCT))) {
+            return null;
+        }
+        return productService.retreiveAllProduct(after, size);
     }
     @GetMapping("/product/stock/{id}")
-    List<Product> retreiveProductStock(@PathVariable Long id){
-        return productService.retreiveProductStock(id);
+    List<Product> retreiveProductStock(@PathVariable Long id,
+                                       @RequestParam(required = false) Long after,
+                                       @RequestParam(defaultValue = "100") int size, WebRequest request){
+        if (request.checkNotModified(tableVersions.etag(TableVersions.PRODUCT))) {
+            return null;
+        }
+        return productService.retreiveProductStock(id, after, size);
+    }
+
+    @GetMapping(value = "/product/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    StreamingResponseBody streamAllProduct(){
+        return out -> productService.streamAllProduct(ndjson(out));
+    }
+
+    @GetMapping(value = "/product/stock/{id}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    StreamingResponseBody streamProductStock(@PathVariable Long id){
+        return out -> productService.streamProductStock(id, ndjson(out));
+    }
+
+    @GetMapping(value = "/product/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter productChanges(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId){
+        return changeFeed.subscribe(lastEventId, event -> true);
+    }
+
+    @GetMapping("/product/search")
+    List<Product> searchProducts(@RequestParam(defaultValue = "") String q,
+                                 @RequestParam(required = false) ProductCategory category,
+                                 @RequestParam(defaultValue = "20") int limit){
+        return productService.searchProducts(q, category, limit);
     }
 
     @GetMapping("/productCategoy/{category}")
@@ -43,4 +121,15 @@ public class ProductController {
     void deleteProduct(@PathVariable Long id){
         productService.deleteProduct(id);
     }
+
+    private Consumer<Product> ndjson(OutputStream out) {
+        return product -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(product));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
 }
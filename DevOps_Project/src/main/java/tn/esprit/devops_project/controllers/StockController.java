@@ -2,9 +2,16 @@ package tn.esprit.devops_project.controllers;
 
 
 import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tn.esprit.devops_project.dto.InventoryValuation;
+import tn.esprit.devops_project.dto.StockView;
 import tn.esprit.devops_project.entities.Stock;
+import tn.esprit.devops_project.services.ChangeFeed;
 import tn.esprit.devops_project.services.Iservices.IStockService;
+import tn.esprit.devops_project.services.TableVersions;
 import java.util.List;
 
 @CrossOrigin(origins = "*")
@@ -13,6 +20,8 @@ import java.util.List;
 public class StockController {
 
     IStockService stockService;
+    TableVersions tableVersions;
+    ChangeFeed changeFeed;
 
     @PostMapping("/stock")
     Stock addStock(@RequestBody Stock stock){
@@ -20,14 +29,33 @@ public class StockController {
     }
 
     @GetMapping("/stock/{id}")
-    Stock retrieveStock(@PathVariable Long id){
+    StockView retrieveStock(@PathVariable Long id){
         return stockService.retrieveStock(id);
     }
 
     @GetMapping("/stock")
-    List<Stock> retrieveAllStock(){
+    List<StockView> retrieveAllStock(WebRequest request){
+        if (request.checkNotModified(tableVersions.etag(TableVersions.STOCK))) {
+            return null;
+        }
         return stockService.retrieveAllStock();
     }
 
+    @GetMapping(value = "/stock/{id}/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter stockChanges(@PathVariable Long id, @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId){
+        stockService.retrieveStock(id);
+        return changeFeed.subscribe(lastEventId, event -> event.concernsStock(id));
+    }
+
+    @GetMapping("/stock/valuation")
+    List<InventoryValuation> retrieveInventoryValuation(){
+        return stockService.retrieveInventoryValuation(null);
+    }
+
+    @GetMapping("/stock/{id}/valuation")
+    List<InventoryValuation> retrieveStockValuation(@PathVariable Long id){
+        return stockService.retrieveInventoryValuation(id);
+    }
+
 
 }
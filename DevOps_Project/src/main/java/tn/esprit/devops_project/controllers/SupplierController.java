@@ -2,8 +2,13 @@ package tn.esprit.devops_project.controllers;
 
 import lombok.AllArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import tn.esprit.devops_project.dto.BatchEntry;
+import tn.esprit.devops_project.dto.SupplierCategoryStats;
+import tn.esprit.devops_project.dto.SupplierView;
 import tn.esprit.devops_project.entities.Supplier;
 import tn.esprit.devops_project.services.Iservices.ISupplierService;
+import tn.esprit.devops_project.services.TableVersions;
 import java.util.List;
 
 
@@ -12,17 +17,35 @@ import java.util.List;
 public class SupplierController {
 
 	ISupplierService supplierService;
+	TableVersions tableVersions;
 
 	@GetMapping("/supplier")
-	public List<Supplier> getSuppliers() {
+	public List<Supplier> getSuppliers(WebRequest request) {
+		if (request.checkNotModified(tableVersions.etag(TableVersions.SUPPLIER))) {
+			return null;
+		}
 		return supplierService.retrieveAllSuppliers();
 	}
 
 	@GetMapping("/supplier/{supplierId}")
-	public Supplier retrieveSupplier(@PathVariable Long supplierId) {
+	public SupplierView retrieveSupplier(@PathVariable Long supplierId) {
 		return supplierService.retrieveSupplier(supplierId);
 	}
 
+	// invoice count, amounts and last invoice date per supplier and per supplier category, non archived invoices only
+	@GetMapping("/supplier/stats")
+	public List<SupplierCategoryStats> getSupplierStatistics(WebRequest request) {
+		if (request.checkNotModified(tableVersions.etag(TableVersions.SUPPLIER, TableVersions.INVOICE))) {
+			return null;
+		}
+		return supplierService.retrieveSupplierStatistics();
+	}
+
+	@GetMapping("/supplier/batch")
+	public List<BatchEntry<SupplierView>> retrieveSuppliers(@RequestParam List<Long> ids) {
+		return supplierService.retrieveSuppliers(ids);
+	}
+
 	@PostMapping("/supplier")
 	public Supplier addSupplier(@RequestBody Supplier supplier) {
 		return supplierService.addSupplier(supplier);
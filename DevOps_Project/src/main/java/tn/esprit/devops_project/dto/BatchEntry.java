@@ -0,0 +1,24 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * One id of a batch lookup, in request order : found with its value, or not found with a null value.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BatchEntry<T> {
+
+    Long id;
+    boolean found;
+    T value;
+
+    public static <T> BatchEntry<T> of(Long id, T value) {
+        return new BatchEntry<>(id, value != null, value);
+    }
+
+}
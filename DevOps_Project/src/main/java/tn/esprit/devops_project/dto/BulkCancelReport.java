@@ -0,0 +1,20 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkCancelReport {
+
+	int chunks;
+	int cancelled;
+	List<Integer> cancelledPerChunk;
+	long elapsedMillis;
+
+}
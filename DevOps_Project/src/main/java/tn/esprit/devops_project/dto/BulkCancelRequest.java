@@ -0,0 +1,30 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Either an explicit list of invoice ids, or criteria (supplier and/or creation date range) selecting
+ * the non archived invoices to cancel.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkCancelRequest {
+
+	List<Long> ids;
+	Long supplierId;
+	Date startDate;
+	Date endDate;
+	Integer chunkSize;
+
+	public boolean hasCriteria() {
+		return supplierId != null || startDate != null || endDate != null;
+	}
+
+}
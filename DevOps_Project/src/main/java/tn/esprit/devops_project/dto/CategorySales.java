@@ -0,0 +1,18 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.devops_project.entities.ProductCategory;
+
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CategorySales {
+
+    ProductCategory category;
+    Long units;
+    Double revenue;
+
+}
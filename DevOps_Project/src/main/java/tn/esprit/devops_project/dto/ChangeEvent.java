@@ -0,0 +1,62 @@
+package tn.esprit.devops_project.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.devops_project.entities.Product;
+
+/**
+ * One change pushed on the product/stock change feed. The event id is the SSE id, not part of the payload.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEvent {
+
+    public enum Type {
+        PRODUCT_CREATED, PRODUCT_UPDATED, PRODUCT_DELETED, PRODUCT_QUANTITY_CHANGED, PRODUCT_STOCK_ASSIGNED,
+        PRODUCTS_IMPORTED, STOCK_CREATED, STOCK_UPDATED,
+        // the client missed events that are no longer buffered : it must reload its data
+        RESYNC
+    }
+
+    Type type;
+    Long idProduct;
+    Long idStock;
+    Long previousIdStock;
+    ProductView product;
+    StockView stock;
+    Integer count;
+    Integer quantity;
+
+    public static ChangeEvent product(Type type, Product product, Long idStock, Long previousIdStock) {
+        return new ChangeEvent(type, product.getIdProduct(), idStock, previousIdStock,
+                type == Type.PRODUCT_DELETED ? null : ProductView.from(product), null, null, null);
+    }
+
+    public static ChangeEvent stock(Type type, StockView stock) {
+        return new ChangeEvent(type, null, stock.getIdStock(), null, null, stock, null, null);
+    }
+
+    public static ChangeEvent imported(int count) {
+        return new ChangeEvent(Type.PRODUCTS_IMPORTED, null, null, null, null, null, count, null);
+    }
+
+    public static ChangeEvent resync() {
+        return new ChangeEvent(Type.RESYNC, null, null, null, null, null, null, null);
+    }
+
+    public static ChangeEvent quantity(ProductQuantity quantity) {
+        return new ChangeEvent(Type.PRODUCT_QUANTITY_CHANGED, quantity.getIdProduct(), quantity.getIdStock(), null, null,
+                null, null, quantity.getQuantity());
+    }
+
+    // events without a stock (imports, resync) concern every stock
+    public boolean concernsStock(Long idStock) {
+        return this.idStock == null || this.idStock.equals(idStock) || idStock.equals(previousIdStock);
+    }
+
+}
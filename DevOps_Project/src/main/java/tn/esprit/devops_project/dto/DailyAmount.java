@@ -0,0 +1,11 @@
+package tn.esprit.devops_project.dto;
+
+import java.util.Date;
+
+public interface DailyAmount {
+
+	Date getRevenueDate();
+
+	Double getAmount();
+
+}
@@ -0,0 +1,24 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.devops_project.entities.ProductCategory;
+
+/**
+ * Quantity and value (price * quantity) of the products of one stock and one category,
+ * built by a JPQL constructor expression.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class InventoryValuation {
+
+    long idStock;
+    String stockTitle;
+    ProductCategory category;
+    Long totalQuantity;
+    Double totalValue;
+
+}
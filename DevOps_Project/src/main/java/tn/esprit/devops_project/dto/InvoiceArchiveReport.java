@@ -0,0 +1,21 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Date;
+
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class InvoiceArchiveReport {
+
+	Date createdBefore;
+	int chunks;
+	int invoices;
+	int invoiceDetails;
+	long elapsedMillis;
+
+}
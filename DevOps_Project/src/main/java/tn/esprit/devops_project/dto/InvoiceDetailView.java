@@ -0,0 +1,31 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.devops_project.entities.ArchivedInvoiceDetail;
+import tn.esprit.devops_project.entities.InvoiceDetail;
+
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class InvoiceDetailView {
+
+    Long idInvoiceDetail;
+    int quantity;
+    float price;
+    ProductView product;
+
+    // the product must have been fetched with the detail, see InvoiceRepository
+    public static InvoiceDetailView from(InvoiceDetail detail) {
+        return new InvoiceDetailView(detail.getIdInvoiceDetail(), detail.getQuantity(), detail.getPrice(),
+                detail.getProduct() == null ? null : ProductView.from(detail.getProduct()));
+    }
+
+    // the product may have been deleted since the detail was archived
+    public static InvoiceDetailView from(ArchivedInvoiceDetail detail, ProductView product) {
+        return new InvoiceDetailView(detail.getIdInvoiceDetail(), detail.getQuantity(), detail.getPrice(), product);
+    }
+
+}
@@ -0,0 +1,38 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Date;
+
+/**
+ * One row of the invoice export : an invoice line along with its invoice, or an invoice without lines with null line
+ * columns. Read as a projection, so streaming millions of them fills no persistence context.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class InvoiceLine {
+
+    Long idInvoice;
+    Date dateCreationInvoice;
+    Long idSupplier;
+    float amountInvoice;
+    float amountDiscount;
+    Boolean archived;
+    Long idInvoiceDetail;
+    Long idProduct;
+    String productTitle;
+    Integer quantity;
+    Float price;
+
+    // a line of the archive tables, archived by definition
+    public InvoiceLine(Long idInvoice, Date dateCreationInvoice, Long idSupplier, float amountInvoice, float amountDiscount,
+                       Long idInvoiceDetail, Long idProduct, String productTitle, Integer quantity, Float price) {
+        this(idInvoice, dateCreationInvoice, idSupplier, amountInvoice, amountDiscount, Boolean.TRUE, idInvoiceDetail,
+                idProduct, productTitle, quantity, price);
+    }
+
+}
@@ -0,0 +1,49 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.devops_project.entities.ArchivedInvoice;
+import tn.esprit.devops_project.entities.Invoice;
+import tn.esprit.devops_project.entities.InvoiceDetail;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Read model of an {@link Invoice} with its details and their products. Built inside the service transaction,
+ * so serializing it never goes back to the database.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class InvoiceView {
+
+    Long idInvoice;
+    float amountDiscount;
+    float amountInvoice;
+    Date dateCreationInvoice;
+    Date dateLastModificationInvoice;
+    Boolean archived;
+    List<InvoiceDetailView> invoiceDetails;
+
+    public static InvoiceView from(Invoice invoice) {
+        List<InvoiceDetailView> details = invoice.getInvoiceDetails() == null ? Collections.emptyList()
+                : invoice.getInvoiceDetails().stream()
+                .sorted(Comparator.comparing(InvoiceDetail::getIdInvoiceDetail))
+                .map(InvoiceDetailView::from)
+                .collect(Collectors.toList());
+        return new InvoiceView(invoice.getIdInvoice(), invoice.getAmountDiscount(), invoice.getAmountInvoice(),
+                invoice.getDateCreationInvoice(), invoice.getDateLastModificationInvoice(), invoice.getArchived(), details);
+    }
+
+    public static InvoiceView from(ArchivedInvoice invoice, List<InvoiceDetailView> details) {
+        return new InvoiceView(invoice.getIdInvoice(), invoice.getAmountDiscount(), invoice.getAmountInvoice(),
+                invoice.getDateCreationInvoice(), invoice.getDateLastModificationInvoice(), Boolean.TRUE, details);
+    }
+
+}
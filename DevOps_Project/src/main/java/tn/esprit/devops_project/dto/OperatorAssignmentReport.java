@@ -0,0 +1,21 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OperatorAssignmentReport {
+
+	Long idOperator;
+	int assigned;
+	List<Long> alreadyAssigned;
+	List<Long> assignedToAnotherOperator;
+	List<Long> notFound;
+
+}
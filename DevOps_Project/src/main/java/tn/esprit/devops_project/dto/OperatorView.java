@@ -0,0 +1,26 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.devops_project.entities.Operator;
+
+/**
+ * Read model of an operator without its invoices, the same JSON as the entity.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OperatorView {
+
+    Long idOperateur;
+    String fname;
+    String lname;
+    String password;
+
+    public static OperatorView from(Operator operator) {
+        return new OperatorView(operator.getIdOperateur(), operator.getFname(), operator.getLname(), operator.getPassword());
+    }
+
+}
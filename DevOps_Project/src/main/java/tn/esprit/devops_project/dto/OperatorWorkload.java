@@ -0,0 +1,22 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Number and total amount of the non archived invoices assigned to one operator, built by a JPQL constructor expression.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OperatorWorkload {
+
+	Long idOperateur;
+	String fname;
+	String lname;
+	Long invoices;
+	Double totalAmount;
+
+}
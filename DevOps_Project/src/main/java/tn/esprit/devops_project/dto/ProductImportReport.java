@@ -0,0 +1,22 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductImportReport {
+
+    long imported;
+    long rejected;
+    // first rejected rows only, as "line <n> : <reason>"
+    List<String> rejections;
+    long elapsedMillis;
+    double rowsPerSecond;
+
+}
@@ -0,0 +1,20 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Quantity left of a product after a reservation or a release.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductQuantity {
+
+    Long idProduct;
+    Long idStock;
+    int quantity;
+
+}
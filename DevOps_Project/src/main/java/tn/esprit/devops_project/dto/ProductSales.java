@@ -0,0 +1,23 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.devops_project.entities.ProductCategory;
+
+/**
+ * Units sold and revenue (price * quantity of the invoice details) of one product, built by a JPQL constructor expression.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductSales {
+
+    Long idProduct;
+    String title;
+    ProductCategory category;
+    Long units;
+    Double revenue;
+
+}
@@ -0,0 +1,13 @@
+package tn.esprit.devops_project.dto;
+
+import tn.esprit.devops_project.entities.ProductCategory;
+
+public interface ProductTerms {
+
+    Long getIdProduct();
+
+    String getTitle();
+
+    ProductCategory getCategory();
+
+}
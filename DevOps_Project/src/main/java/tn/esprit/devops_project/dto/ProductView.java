@@ -0,0 +1,26 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.devops_project.entities.Product;
+import tn.esprit.devops_project.entities.ProductCategory;
+
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductView {
+
+    Long idProduct;
+    String title;
+    float price;
+    int quantity;
+    ProductCategory category;
+
+    public static ProductView from(Product product) {
+        return new ProductView(product.getIdProduct(), product.getTitle(), product.getPrice(), product.getQuantity(),
+                product.getCategory());
+    }
+
+}
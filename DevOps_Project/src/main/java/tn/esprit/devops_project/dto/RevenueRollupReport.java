@@ -0,0 +1,25 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Date;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class RevenueRollupReport {
+
+	int checkedDays;
+	List<Date> mismatchedDays;
+	double rollupTotal;
+	double invoiceTotal;
+
+	public boolean isConsistent() {
+		return mismatchedDays.isEmpty();
+	}
+
+}
@@ -0,0 +1,25 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.devops_project.entities.SupplierCategory;
+
+import java.util.Date;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SupplierCategoryStats {
+
+    SupplierCategory supplierCategory;
+    int supplierCount;
+    long invoiceCount;
+    double totalAmountInvoice;
+    double totalAmountDiscount;
+    Date lastInvoiceDate;
+    List<SupplierStats> suppliers;
+
+}
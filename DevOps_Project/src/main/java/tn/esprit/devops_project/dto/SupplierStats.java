@@ -0,0 +1,39 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.devops_project.entities.SupplierCategory;
+
+import java.util.Date;
+
+/**
+ * Figures of the non archived invoices of one supplier, zero for a supplier without any.
+ */
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SupplierStats {
+
+    Long idSupplier;
+    String code;
+    String label;
+    SupplierCategory supplierCategory;
+    long invoiceCount;
+    double totalAmountInvoice;
+    double totalAmountDiscount;
+    Date lastInvoiceDate;
+
+    // the sums are null for a supplier without invoices
+    public SupplierStats(Long idSupplier, String code, String label, SupplierCategory supplierCategory, Long invoiceCount,
+                         Double totalAmountInvoice, Double totalAmountDiscount, Date lastInvoiceDate) {
+        this.idSupplier = idSupplier;
+        this.code = code;
+        this.label = label;
+        this.supplierCategory = supplierCategory;
+        this.invoiceCount = invoiceCount == null ? 0 : invoiceCount;
+        this.totalAmountInvoice = totalAmountInvoice == null ? 0 : totalAmountInvoice;
+        this.totalAmountDiscount = totalAmountDiscount == null ? 0 : totalAmountDiscount;
+        this.lastInvoiceDate = lastInvoiceDate;
+    }
+
+}
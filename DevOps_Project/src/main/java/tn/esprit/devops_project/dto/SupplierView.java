@@ -0,0 +1,27 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.devops_project.entities.Supplier;
+import tn.esprit.devops_project.entities.SupplierCategory;
+
+/**
+ * Read model of a supplier without its invoices, the same JSON as the entity.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SupplierView {
+
+    Long idSupplier;
+    String code;
+    String label;
+    SupplierCategory supplierCategory;
+
+    public static SupplierView from(Supplier supplier) {
+        return new SupplierView(supplier.getIdSupplier(), supplier.getCode(), supplier.getLabel(), supplier.getSupplierCategory());
+    }
+
+}
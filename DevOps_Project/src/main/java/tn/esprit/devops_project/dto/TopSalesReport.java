@@ -0,0 +1,24 @@
+package tn.esprit.devops_project.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Date;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TopSalesReport {
+
+    Date startDate;
+    Date endDate;
+    Long supplierId;
+    List<ProductSales> productsByRevenue;
+    List<ProductSales> productsByUnits;
+    List<CategorySales> categoriesByRevenue;
+    List<CategorySales> categoriesByUnits;
+
+}
@@ -0,0 +1,43 @@
+package tn.esprit.devops_project.entities;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Cold copy of an archived {@link Invoice}, moved out of the {@code invoice} table by
+ * {@link tn.esprit.devops_project.services.InvoiceArchiveJob}. The supplier and the operator are kept as plain ids :
+ * nothing in the hot tables references the archive, and the archive never blocks a delete in the hot tables.
+ */
+@Entity
+@Table(name = "invoice_archive")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ArchivedInvoice implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	// same id as in the invoice table, an invoice keeps its number once archived
+	@Id
+	Long idInvoice;
+	float amountDiscount;
+	float amountInvoice;
+	@Temporal(TemporalType.DATE)
+	Date dateCreationInvoice;
+	@Temporal(TemporalType.DATE)
+	Date dateLastModificationInvoice;
+	Long idSupplier;
+	Long idOperator;
+	@Temporal(TemporalType.TIMESTAMP)
+	Date archivedAt;
+
+}
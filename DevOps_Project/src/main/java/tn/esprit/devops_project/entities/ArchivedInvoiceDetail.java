@@ -0,0 +1,34 @@
+package tn.esprit.devops_project.entities;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * Cold copy of an {@link InvoiceDetail}, moved along with its {@link ArchivedInvoice}.
+ */
+@Entity
+@Table(name = "invoice_detail_archive", indexes = @Index(name = "idx_invoice_detail_archive_invoice", columnList = "id_invoice"))
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ArchivedInvoiceDetail implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	Long idInvoiceDetail;
+	int quantity;
+	float price;
+	Long idProduct;
+	@Column(name = "id_invoice")
+	Long idInvoice;
+
+}
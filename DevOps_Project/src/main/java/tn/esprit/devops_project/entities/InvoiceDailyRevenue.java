@@ -0,0 +1,31 @@
+package tn.esprit.devops_project.entities;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * One row per day holding the sum of {@code amountInvoice} of the non archived invoices created that day.
+ * Maintained by {@link tn.esprit.devops_project.services.InvoiceRevenueRollupListener}.
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class InvoiceDailyRevenue implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@Temporal(TemporalType.DATE)
+	Date revenueDate;
+	double amount;
+
+}
@@ -2,6 +2,7 @@ package tn.esprit.devops_project.entities;
 
 import java.io.Serializable;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -24,9 +25,9 @@ public class InvoiceDetail implements Serializable {
 	Long idInvoiceDetail;
 	int quantity;
 	float price;
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	Product product;
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JsonIgnore
 	Invoice invoice;
 
@@ -22,7 +22,7 @@ public class Product implements Serializable {
     int quantity;
     @Enumerated(EnumType.STRING)
     ProductCategory category;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JsonIgnore
     Stock stock;
 }
@@ -0,0 +1,226 @@
+package tn.esprit.devops_project.generator;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.devops_project.entities.ProductCategory;
+import tn.esprit.devops_project.entities.SupplierCategory;
+import tn.esprit.devops_project.services.Iservices.IInvoiceService;
+import tn.esprit.devops_project.services.ProductSearchIndex;
+import tn.esprit.devops_project.services.SupplierStatistics;
+import tn.esprit.devops_project.services.TableVersions;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills the schema with a production-like dataset : a few suppliers get most of the invoices, a few products most
+ * of the invoice lines, and invoices spread over several years. Rows are appended after the highest existing ids,
+ * in JDBC batches written by several threads, one transaction per batch.
+ * <p>
+ * Run with {@code --spring.profiles.active=generator} (add {@code h2} for a local H2 file database, in a build with
+ * {@code -Ph2}).
+ */
+@Slf4j
+@Component
+@Profile("generator")
+@RequiredArgsConstructor
+public class DataGenerator implements ApplicationRunner {
+
+    static final String INSERT_STOCK = "insert into stock (id_stock, title) values (?, ?)";
+    static final String INSERT_SUPPLIER = "insert into supplier (id_supplier, code, label, supplier_category) values (?, ?, ?, ?)";
+    static final String INSERT_OPERATOR = "insert into operator (id_operateur, fname, lname, password) values (?, ?, ?, ?)";
+    static final String INSERT_PRODUCT = "insert into product (id_product, title, price, quantity, category, stock_id_stock)"
+            + " values (?, ?, ?, ?, ?, ?)";
+    static final String INSERT_INVOICE = "insert into invoice (id_invoice, amount_discount, amount_invoice, date_creation_invoice,"
+            + " date_last_modification_invoice, archived, supplier_id_supplier) values (?, ?, ?, ?, ?, ?, ?)";
+    static final String INSERT_DETAIL = "insert into invoice_detail (id_invoice_detail, quantity, price, product_id_product,"
+            + " invoice_id_invoice) values (?, ?, ?, ?, ?)";
+    static final String INSERT_ASSIGNMENT = "insert into operator_invoices (operator_id_operateur, invoices_id_invoice) values (?, ?)";
+    static final long PROGRESS_EVERY = 100_000;
+    static final String[] WORDS = {"basic", "premium", "pro", "mini", "max", "classic", "smart", "eco", "ultra", "lite",
+            "phone", "laptop", "shirt", "jacket", "novel", "guide", "cable", "shoes", "watch", "lamp"};
+
+    private final GeneratorProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IInvoiceService invoiceService;
+    private final SupplierStatistics supplierStatistics;
+    private final ProductSearchIndex productSearchIndex;
+    private final TableVersions tableVersions;
+    private final ConfigurableApplicationContext context;
+
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong invoicesDone = new AtomicLong();
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        long start = System.currentTimeMillis();
+        long stock0 = maxId("stock", "id_stock");
+        long supplier0 = maxId("supplier", "id_supplier");
+        long operator0 = maxId("operator", "id_operateur");
+        long product0 = maxId("product", "id_product");
+        long invoice0 = maxId("invoice", "id_invoice");
+        long detail0 = maxId("invoice_detail", "id_invoice_detail");
+        // invoice line ids are taken from a fixed range per invoice, the unused ones are simply skipped
+        // uniform over 1..maxLines : linesPerInvoice on average
+        int maxLines = properties.getLinesPerInvoice() * 2 - 1;
+
+        SplittableRandom random = new SplittableRandom(properties.getSeed());
+        List<Object[]> batch = new ArrayList<>();
+        for (long i = 1; i <= properties.getStocks(); i++) {
+            batch.add(new Object[]{stock0 + i, "stock " + (stock0 + i)});
+        }
+        insert(INSERT_STOCK, batch);
+        batch = new ArrayList<>();
+        SupplierCategory[] supplierCategories = SupplierCategory.values();
+        for (long i = 1; i <= properties.getSuppliers(); i++) {
+            batch.add(new Object[]{supplier0 + i, "SUP" + (supplier0 + i), "supplier " + (supplier0 + i),
+                    supplierCategories[random.nextInt(supplierCategories.length)].name()});
+        }
+        insert(INSERT_SUPPLIER, batch);
+        batch = new ArrayList<>();
+        for (long i = 1; i <= properties.getOperators(); i++) {
+            batch.add(new Object[]{operator0 + i, "fname" + i, "lname" + i, Long.toHexString(random.nextLong())});
+        }
+        insert(INSERT_OPERATOR, batch);
+
+        float[] prices = new float[properties.getProducts() + 1];
+        ZipfDistribution supplierPopularity = new ZipfDistribution(properties.getSuppliers(), properties.getSupplierSkew());
+        ZipfDistribution productPopularity = new ZipfDistribution(properties.getProducts(), properties.getProductSkew());
+        LocalDate firstDay = LocalDate.now().minusYears(properties.getYears());
+        int days = properties.getYears() * 365;
+
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getThreads());
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int from = 1; from <= properties.getProducts(); from += properties.getBatchSize()) {
+                int first = from;
+                int last = Math.min(from + properties.getBatchSize() - 1, properties.getProducts());
+                tasks.add(executor.submit(() -> insertProducts(first, last, product0, stock0, prices)));
+            }
+            await(tasks);
+            log.info("Generator : {} products done", properties.getProducts());
+            int invoicesPerBatch = Math.max(1, properties.getBatchSize() / (1 + properties.getLinesPerInvoice()));
+            for (int from = 1; from <= properties.getInvoices(); from += invoicesPerBatch) {
+                int first = from;
+                int last = Math.min(from + invoicesPerBatch - 1, properties.getInvoices());
+                tasks.add(executor.submit(() -> insertInvoices(first, last, invoice0, detail0, maxLines, supplier0,
+                        operator0, product0, prices, supplierPopularity, productPopularity, firstDay, days)));
+            }
+            await(tasks);
+        } finally {
+            executor.shutdownNow();
+        }
+        restartIdentities();
+        invoiceService.rebuildRevenueRollup();
+        supplierStatistics.invalidateAll();
+        productSearchIndex.indexAfter(product0);
+        tableVersions.touch(TableVersions.STOCK, TableVersions.SUPPLIER, TableVersions.OPERATOR, TableVersions.PRODUCT,
+                TableVersions.INVOICE);
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        log.info("Generator : {} rows in {} s ({} rows/s)", rows.get(), elapsed / 1000, rows.get() * 1000 / elapsed);
+        if (properties.isExit()) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private void insertProducts(int first, int last, long product0, long stock0, float[] prices) {
+        SplittableRandom random = new SplittableRandom(properties.getSeed() + first);
+        ProductCategory[] categories = ProductCategory.values();
+        List<Object[]> batch = new ArrayList<>(last - first + 1);
+        for (int i = first; i <= last; i++) {
+            prices[i] = random.nextInt(100, 200_000) / 100f;
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            batch.add(new Object[]{product0 + i, title, prices[i], random.nextInt(0, 500),
+                    categories[random.nextInt(categories.length)].name(), stock0 + 1 + random.nextInt(properties.getStocks())});
+        }
+        insert(INSERT_PRODUCT, batch);
+    }
+
+    private void insertInvoices(int first, int last, long invoice0, long detail0, int maxLines, long supplier0,
+                                long operator0, long product0, float[] prices, ZipfDistribution supplierPopularity,
+                                ZipfDistribution productPopularity, LocalDate firstDay, int days) {
+        SplittableRandom random = new SplittableRandom(properties.getSeed() * 31 + first);
+        List<Object[]> invoices = new ArrayList<>();
+        List<Object[]> details = new ArrayList<>();
+        List<Object[]> assignments = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            long idInvoice = invoice0 + i;
+            int lines = 1 + random.nextInt(maxLines);
+            float amount = 0;
+            for (int line = 0; line < lines; line++) {
+                int product = productPopularity.sample(random);
+                int quantity = 1 + random.nextInt(10);
+                amount += prices[product] * quantity;
+                details.add(new Object[]{detail0 + (long) (i - 1) * maxLines + line + 1, quantity, prices[product],
+                        product0 + product, idInvoice});
+            }
+            float discount = random.nextInt(4) == 0 ? amount * random.nextInt(1, 20) / 100f : 0f;
+            LocalDate created = firstDay.plusDays(random.nextInt(days));
+            invoices.add(new Object[]{idInvoice, discount, amount - discount, Date.valueOf(created),
+                    Date.valueOf(created.plusDays(random.nextInt(30))), random.nextDouble() < properties.getArchivedRatio(),
+                    supplier0 + supplierPopularity.sample(random)});
+            if (random.nextDouble() < properties.getAssignedRatio()) {
+                assignments.add(new Object[]{operator0 + 1 + random.nextInt(properties.getOperators()), idInvoice});
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_INVOICE, invoices);
+            jdbcTemplate.batchUpdate(INSERT_DETAIL, details);
+            jdbcTemplate.batchUpdate(INSERT_ASSIGNMENT, assignments);
+        });
+        long total = rows.addAndGet(invoices.size() + details.size() + assignments.size());
+        long done = invoicesDone.addAndGet(invoices.size());
+        if (done / PROGRESS_EVERY != (done - invoices.size()) / PROGRESS_EVERY) {
+            log.info("Generator : {} invoices, {} rows so far", done, total);
+        }
+    }
+
+    private void insert(String sql, List<Object[]> batch) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql, batch));
+        rows.addAndGet(batch.size());
+    }
+
+    private long maxId(String table, String column) {
+        Long max = jdbcTemplate.queryForObject("select max(" + column + ") from " + table, Long.class);
+        return max == null ? 0 : max;
+    }
+
+    // MySQL moves AUTO_INCREMENT past explicit ids by itself, H2 identity columns have to be restarted
+    private void restartIdentities() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if (!"H2".equals(database)) {
+            return;
+        }
+        String[][] identities = {{"stock", "id_stock"}, {"supplier", "id_supplier"}, {"operator", "id_operateur"},
+                {"product", "id_product"}, {"invoice", "id_invoice"}, {"invoice_detail", "id_invoice_detail"}};
+        for (String[] identity : identities) {
+            jdbcTemplate.execute("alter table " + identity[0] + " alter column " + identity[1] + " restart with "
+                    + (maxId(identity[0], identity[1]) + 1));
+        }
+    }
+
+    private static void await(List<Future<?>> tasks) throws Exception {
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        tasks.clear();
+    }
+
+}
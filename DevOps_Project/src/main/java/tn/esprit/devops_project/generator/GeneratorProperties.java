@@ -0,0 +1,40 @@
+package tn.esprit.devops_project.generator;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Size and shape of the synthetic dataset, set with --generator.* arguments.
+ * The defaults produce about 4.9 million rows : 1 million invoices, 3 million invoice lines, 800 000 operator
+ * assignments and 100 000 products.
+ */
+@Getter
+@Setter
+@Component
+@Profile("generator")
+@ConfigurationProperties(prefix = "generator")
+public class GeneratorProperties {
+
+    private int stocks = 50;
+    private int suppliers = 1000;
+    private int operators = 200;
+    private int products = 100_000;
+    private int invoices = 1_000_000;
+    // average number of lines per invoice : each invoice has 1 to 2 * linesPerInvoice - 1 of them
+    private int linesPerInvoice = 3;
+    // zipf exponents : the higher, the more invoices go to a few suppliers / lines to a few products
+    private double supplierSkew = 1.2;
+    private double productSkew = 1.0;
+    private int years = 5;
+    private double archivedRatio = 0.05;
+    private double assignedRatio = 0.8;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 5000;
+    private long seed = 42;
+    // stop the application once the data is loaded
+    private boolean exit = true;
+
+}
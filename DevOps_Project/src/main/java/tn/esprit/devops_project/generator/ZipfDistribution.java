@@ -0,0 +1,31 @@
+package tn.esprit.devops_project.generator;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Ranks 1..n drawn with probability proportional to 1 / rank^exponent, by binary search in the cumulative
+ * distribution.
+ */
+class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    ZipfDistribution(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1) + 1;
+    }
+
+}
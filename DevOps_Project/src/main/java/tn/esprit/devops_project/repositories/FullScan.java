@@ -0,0 +1,21 @@
+package tn.esprit.devops_project.repositories;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a repository query that reads a whole table on purpose, so the query plan test
+ * ({@code QueryPlanCheckTest}) does not fail on it.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FullScan {
+
+    // why no index can help
+    String value();
+
+}
@@ -0,0 +1,59 @@
+package tn.esprit.devops_project.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.devops_project.dto.InvoiceLine;
+import tn.esprit.devops_project.entities.ArchivedInvoice;
+import tn.esprit.devops_project.entities.ArchivedInvoiceDetail;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface InvoiceArchiveRepository extends JpaRepository<ArchivedInvoice, Long> {
+
+	// the cold tables keep plain ids : joined on them, the product title is the current one, if the product still exists
+	String INVOICE_LINES = "SELECT new tn.esprit.devops_project.dto.InvoiceLine(i.idInvoice, i.dateCreationInvoice,"
+			+ " i.idSupplier, i.amountInvoice, i.amountDiscount, d.idInvoiceDetail, d.idProduct, p.title, d.quantity, d.price)"
+			+ " FROM ArchivedInvoice i LEFT JOIN ArchivedInvoiceDetail d ON d.idInvoice = i.idInvoice"
+			+ " LEFT JOIN Product p ON p.idProduct = d.idProduct"
+			+ " WHERE i.dateCreationInvoice BETWEEN :startDate AND :endDate";
+	String INVOICE_LINES_ORDER = " ORDER BY i.dateCreationInvoice, i.idInvoice, d.idInvoiceDetail";
+
+	// copied in the database, the rows never travel through the application
+	@Modifying
+	@Query(value = "insert into invoice_archive (id_invoice, amount_discount, amount_invoice, date_creation_invoice,"
+			+ " date_last_modification_invoice, id_supplier, id_operator, archived_at)"
+			+ " select i.id_invoice, i.amount_discount, i.amount_invoice, i.date_creation_invoice,"
+			+ " i.date_last_modification_invoice, i.supplier_id_supplier,"
+			+ " (select max(oi.operator_id_operateur) from operator_invoices oi where oi.invoices_id_invoice = i.id_invoice),"
+			+ " :archivedAt from invoice i where i.id_invoice in :ids and i.archived = true", nativeQuery = true)
+	int copyInvoices(@Param("ids") Collection<Long> ids, @Param("archivedAt") Date archivedAt);
+
+	@Modifying
+	@Query(value = "insert into invoice_detail_archive (id_invoice_detail, quantity, price, id_product, id_invoice)"
+			+ " select d.id_invoice_detail, d.quantity, d.price, d.product_id_product, d.invoice_id_invoice"
+			+ " from invoice_detail d join invoice i on i.id_invoice = d.invoice_id_invoice"
+			+ " where i.id_invoice in :ids and i.archived = true", nativeQuery = true)
+	int copyInvoiceDetails(@Param("ids") Collection<Long> ids);
+
+	@Query("SELECT d FROM ArchivedInvoiceDetail d where d.idInvoice in :ids order by d.idInvoiceDetail")
+	List<ArchivedInvoiceDetail> findDetails(@Param("ids") Collection<Long> ids);
+
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + InvoiceRepository.FETCH_SIZE))
+	@Query(INVOICE_LINES + INVOICE_LINES_ORDER)
+	Stream<InvoiceLine> streamLines(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
+
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + InvoiceRepository.FETCH_SIZE))
+	@Query(INVOICE_LINES + " AND i.idSupplier = :idSupplier" + INVOICE_LINES_ORDER)
+	Stream<InvoiceLine> streamLinesOfSupplier(@Param("idSupplier") Long idSupplier, @Param("startDate") Date startDate,
+											  @Param("endDate") Date endDate);
+
+}
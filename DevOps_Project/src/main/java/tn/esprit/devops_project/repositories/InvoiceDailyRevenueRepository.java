@@ -0,0 +1,34 @@
+package tn.esprit.devops_project.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.devops_project.entities.InvoiceDailyRevenue;
+
+import java.util.Date;
+
+public interface InvoiceDailyRevenueRepository extends JpaRepository<InvoiceDailyRevenue, Date> {
+
+	@Query("SELECT coalesce(sum(r.amount), 0) FROM InvoiceDailyRevenue r where r.revenueDate between :startDate and :endDate")
+	double sumAmountBetweenDates(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
+
+	// one upsert, as in InvoiceRevenueRollupListener
+	@Modifying
+	@Query(value = "insert into invoice_daily_revenue (revenue_date, amount) values (:day, :delta)"
+			+ " on duplicate key update amount = amount + values(amount)", nativeQuery = true)
+	int addAmount(@Param("day") Date day, @Param("delta") double delta);
+
+	@FullScan("the rollup is rebuilt from scratch")
+	@Modifying
+	@Query("delete from InvoiceDailyRevenue r")
+	void deleteAllDays();
+
+	@Modifying
+	@Query(value = "insert into invoice_daily_revenue (revenue_date, amount)"
+			+ " select i.date_creation_invoice, sum(i.amount_invoice) from invoice i"
+			+ " where i.archived = false and i.date_creation_invoice is not null"
+			+ " group by i.date_creation_invoice", nativeQuery = true)
+	int rebuildFromInvoices();
+
+}
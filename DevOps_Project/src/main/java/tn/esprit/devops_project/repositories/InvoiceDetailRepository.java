@@ -1,9 +1,44 @@
 package tn.esprit.devops_project.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tn.esprit.devops_project.dto.CategorySales;
+import tn.esprit.devops_project.dto.ProductSales;
 import tn.esprit.devops_project.entities.InvoiceDetail;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
 public interface InvoiceDetailRepository extends JpaRepository<InvoiceDetail, Long> {
 
+    String SALES_OF_PERIOD = " FROM InvoiceDetail d JOIN d.invoice i JOIN d.product p WHERE i.archived = false"
+            + " AND i.dateCreationInvoice BETWEEN :startDate AND :endDate"
+            + " AND (:idSupplier IS NULL OR i.supplier.idSupplier = :idSupplier)";
+    String PRODUCT_SALES = "SELECT new tn.esprit.devops_project.dto.ProductSales(p.idProduct, p.title, p.category,"
+            + " sum(d.quantity), sum(d.price * d.quantity))" + SALES_OF_PERIOD
+            + " GROUP BY p.idProduct, p.title, p.category";
+
+    // the database aggregates and sorts, only the first page of groups comes back
+    @Query(PRODUCT_SALES + " ORDER BY sum(d.price * d.quantity) DESC, p.idProduct")
+    List<ProductSales> getTopProductsByRevenue(@Param("startDate") Date startDate, @Param("endDate") Date endDate,
+                                               @Param("idSupplier") Long idSupplier, Pageable pageable);
+
+    @Query(PRODUCT_SALES + " ORDER BY sum(d.quantity) DESC, p.idProduct")
+    List<ProductSales> getTopProductsByUnits(@Param("startDate") Date startDate, @Param("endDate") Date endDate,
+                                             @Param("idSupplier") Long idSupplier, Pageable pageable);
+
+    @Query("SELECT new tn.esprit.devops_project.dto.CategorySales(p.category, sum(d.quantity), sum(d.price * d.quantity))"
+            + SALES_OF_PERIOD + " GROUP BY p.category")
+    List<CategorySales> getSalesPerCategory(@Param("startDate") Date startDate, @Param("endDate") Date endDate,
+                                            @Param("idSupplier") Long idSupplier);
+
+    @Modifying
+    @Query("DELETE FROM InvoiceDetail d WHERE d.invoice.idInvoice IN :ids")
+    int deleteByInvoiceIds(@Param("ids") Collection<Long> ids);
+
 }
@@ -1,28 +1,108 @@
 package tn.esprit.devops_project.repositories;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tn.esprit.devops_project.dto.DailyAmount;
+import tn.esprit.devops_project.dto.InvoiceLine;
 import tn.esprit.devops_project.entities.Invoice;
-import tn.esprit.devops_project.entities.Supplier;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
 
+	int FETCH_SIZE = 500;
+
+	// invoices without lines come out once, with null line columns
+	String INVOICE_LINES = "SELECT new tn.esprit.devops_project.dto.InvoiceLine(i.idInvoice, i.dateCreationInvoice,"
+			+ " i.supplier.idSupplier, i.amountInvoice, i.amountDiscount, i.archived, d.idInvoiceDetail, p.idProduct,"
+			+ " p.title, d.quantity, d.price) FROM Invoice i LEFT JOIN i.invoiceDetails d LEFT JOIN d.product p"
+			+ " WHERE i.dateCreationInvoice BETWEEN :startDate AND :endDate";
+	String INVOICE_LINES_ORDER = " ORDER BY i.dateCreationInvoice, i.idInvoice, d.idInvoiceDetail";
+
 	
-	@Query("SELECT i FROM Invoice i where i.supplier=:supplier and i.archived=false")
-	public List<Invoice> retrieveInvoicesBySupplier(@Param("supplier") Supplier supplier);
+	@Query("SELECT i.idInvoice FROM Invoice i where i.supplier.idSupplier=:idSupplier and i.archived=false"
+			+ " and i.idInvoice>:after order by i.idInvoice")
+	public List<Long> retrieveInvoicesBySupplier(@Param("idSupplier") Long idSupplier, @Param("after") Long after, Pageable pageable);
+
+	// paging and collection fetch joins do not mix : page the ids first, then fetch the whole graph in one query
+	@EntityGraph(attributePaths = {"invoiceDetails", "invoiceDetails.product"})
+	@Query("SELECT DISTINCT i FROM Invoice i where i.idInvoice in :ids order by i.idInvoice")
+	List<Invoice> retrieveInvoicesWithDetails(@Param("ids") Collection<Long> ids);
+
+	@FullScan("list of every invoice")
+	@EntityGraph(attributePaths = {"invoiceDetails", "invoiceDetails.product"})
+	@Query("SELECT DISTINCT i FROM Invoice i order by i.idInvoice")
+	List<Invoice> retrieveAllInvoicesWithDetails();
+
+	@EntityGraph(attributePaths = {"invoiceDetails", "invoiceDetails.product"})
+	Optional<Invoice> findWithDetailsByIdInvoice(Long idInvoice);
 
 	
 	@Query("SELECT sum(i.amountInvoice) FROM Invoice i where  i.dateCreationInvoice between :startDate"
 			+ " and :endDate and i.archived=false")
 	float getTotalAmountInvoiceBetweenDates(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
 
+	@Query("SELECT i.dateCreationInvoice as revenueDate, sum(i.amountInvoice) as amount FROM Invoice i"
+			+ " where i.dateCreationInvoice is not null and i.archived=false group by i.dateCreationInvoice")
+	List<DailyAmount> getAmountPerDay();
+
+	// the rows a bulk cancel archives, locked until it commits : an overlapping cancel waits, then finds them archived
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT i FROM Invoice i where i.idInvoice in :ids and i.archived=false order by i.idInvoice")
+	List<Invoice> lockActiveInvoices(@Param("ids") Collection<Long> ids);
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT i FROM Invoice i where i.idInvoice=:idInvoice")
+	Optional<Invoice> lockInvoice(@Param("idInvoice") Long idInvoice);
+
+	@Query("SELECT i.idInvoice FROM Invoice i where i.archived=false and i.idInvoice>:after"
+			+ " and (:idSupplier is null or i.supplier.idSupplier=:idSupplier)"
+			+ " and (:startDate is null or i.dateCreationInvoice>=:startDate)"
+			+ " and (:endDate is null or i.dateCreationInvoice<=:endDate) order by i.idInvoice")
+	List<Long> retrieveActiveInvoiceIds(@Param("idSupplier") Long idSupplier, @Param("startDate") Date startDate,
+										@Param("endDate") Date endDate, @Param("after") Long after, Pageable pageable);
+
+	@Query("SELECT i.idInvoice FROM Invoice i where i.idInvoice in :ids")
+	List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+	@Query("SELECT DISTINCT i.supplier.idSupplier FROM Invoice i where i.idInvoice in :ids")
+	List<Long> findSupplierIds(@Param("ids") Collection<Long> ids);
+
 	@Modifying
-	@Query("update Invoice i set i.archived=true where i.idInvoice=?1")
-	void updateInvoice(Long id);
-	
+	@Query("update Invoice i set i.archived=true where i.idInvoice in :ids and i.archived=false")
+	int archiveInvoices(@Param("ids") Collection<Long> ids);
+
+	@Query("SELECT i.idInvoice FROM Invoice i where i.archived=true and i.dateCreationInvoice<:before"
+			+ " and i.idInvoice>:after order by i.idInvoice")
+	List<Long> retrieveArchivedInvoiceIds(@Param("before") Date before, @Param("after") Long after, Pageable pageable);
+
+	@Modifying
+	@Query("delete from Invoice i where i.idInvoice in :ids and i.archived=true")
+	int deleteArchivedInvoices(@Param("ids") Collection<Long> ids);
+
+	// forward-only cursor, FETCH_SIZE rows at a time with useCursorFetch=true, as ProductRepository.streamAll
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + FETCH_SIZE))
+	@Query(INVOICE_LINES + INVOICE_LINES_ORDER)
+	Stream<InvoiceLine> streamLines(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
+
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + FETCH_SIZE))
+	@Query(INVOICE_LINES + " AND i.supplier.idSupplier = :idSupplier" + INVOICE_LINES_ORDER)
+	Stream<InvoiceLine> streamLinesOfSupplier(@Param("idSupplier") Long idSupplier, @Param("startDate") Date startDate,
+											  @Param("endDate") Date endDate);
+
 }
@@ -1,9 +1,35 @@
 package tn.esprit.devops_project.repositories;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tn.esprit.devops_project.dto.OperatorWorkload;
 import tn.esprit.devops_project.entities.Operator;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface OperatorRepository extends CrudRepository<Operator, Long> {
 
+    // reads the join table directly : Operator.invoices is never initialized to know who owns an invoice
+    @Query(value = "SELECT invoices_id_invoice, operator_id_operateur FROM operator_invoices WHERE invoices_id_invoice IN :ids",
+            nativeQuery = true)
+    List<Object[]> findAssignments(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM operator_invoices WHERE invoices_id_invoice IN :ids", nativeQuery = true)
+    int deleteAssignments(@Param("ids") Collection<Long> ids);
+
+    String WORKLOAD = "SELECT new tn.esprit.devops_project.dto.OperatorWorkload(o.idOperateur, o.fname, o.lname, count(i),"
+            + " coalesce(sum(i.amountInvoice), 0.0)) FROM Operator o LEFT JOIN o.invoices i ON i.archived = false";
+
+    @FullScan("workload of every operator")
+    @Query(WORKLOAD + " GROUP BY o.idOperateur, o.fname, o.lname ORDER BY o.idOperateur")
+    List<OperatorWorkload> getWorkload();
+
+    @Query(WORKLOAD + " WHERE o.idOperateur = :idOperator GROUP BY o.idOperateur, o.fname, o.lname")
+    List<OperatorWorkload> getWorkload(@Param("idOperator") Long idOperator);
+
 }
@@ -1,13 +1,81 @@
 package tn.esprit.devops_project.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.devops_project.dto.InventoryValuation;
+import tn.esprit.devops_project.dto.ProductQuantity;
+import tn.esprit.devops_project.dto.ProductTerms;
 import tn.esprit.devops_project.entities.Product;
 import tn.esprit.devops_project.entities.ProductCategory;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+    int FETCH_SIZE = 500;
+
+    String INVENTORY_VALUATION = "SELECT new tn.esprit.devops_project.dto.InventoryValuation(s.idStock, s.title, p.category,"
+            + " sum(p.quantity), sum(p.price * p.quantity)) FROM Product p JOIN p.stock s";
+
     List<Product> findByCategory(ProductCategory category);
-    List<Product> findByStockIdStock(Long idStock);
+
+    // a derived findByStockIdStock left joins the stock and filters on its key, the product table is then scanned
+    @Query("SELECT p FROM Product p WHERE p.stock.idStock = :idStock")
+    List<Product> findByStockIdStock(@Param("idStock") Long idStock);
+
+    // keyset pagination : next page starts strictly after the last idProduct returned
+    List<Product> findByIdProductGreaterThanOrderByIdProductAsc(Long idProduct, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.stock.idStock = :idStock AND p.idProduct > :idProduct ORDER BY p.idProduct")
+    List<Product> findByStockIdStockAndIdProductGreaterThanOrderByIdProductAsc(@Param("idStock") Long idStock,
+                                                                              @Param("idProduct") Long idProduct, Pageable pageable);
+
+    // with useCursorFetch=true the MySQL driver reads FETCH_SIZE rows at a time instead of buffering the result set
+    @FullScan("export of the whole catalog")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + FETCH_SIZE))
+    @Query("SELECT p FROM Product p ORDER BY p.idProduct")
+    Stream<Product> streamAll();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + FETCH_SIZE))
+    @Query("SELECT p FROM Product p WHERE p.stock.idStock = :idStock ORDER BY p.idProduct")
+    Stream<Product> streamByStock(@Param("idStock") Long idStock);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + FETCH_SIZE))
+    @Query("SELECT p.idProduct AS idProduct, p.title AS title, p.category AS category FROM Product p"
+            + " WHERE p.idProduct > :idProduct ORDER BY p.idProduct")
+    Stream<ProductTerms> streamTermsAfter(@Param("idProduct") Long idProduct);
+
+    @Query("SELECT coalesce(max(p.idProduct), 0) FROM Product p")
+    Long findMaxIdProduct();
+
+    @FullScan("valuation of every stock")
+    @Query(INVENTORY_VALUATION + " GROUP BY s.idStock, s.title, p.category ORDER BY s.idStock, p.category")
+    List<InventoryValuation> getInventoryValuation();
+
+    // not folded into the query above with "(:idStock IS NULL OR ...)" : that predicate keeps the index out on H2
+    @Query(INVENTORY_VALUATION + " WHERE p.stock.idStock = :idStock"
+            + " GROUP BY s.idStock, s.title, p.category ORDER BY s.idStock, p.category")
+    List<InventoryValuation> getInventoryValuation(@Param("idStock") Long idStock);
+
+    // conditional atomic decrement : the row lock of the UPDATE is held for one statement, never across a read
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity - :quantity WHERE p.idProduct = :idProduct AND p.quantity >= :quantity")
+    int reserveQuantity(@Param("idProduct") Long idProduct, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity + :quantity WHERE p.idProduct = :idProduct")
+    int releaseQuantity(@Param("idProduct") Long idProduct, @Param("quantity") int quantity);
+
+    @Query("SELECT new tn.esprit.devops_project.dto.ProductQuantity(p.idProduct, p.stock.idStock, p.quantity) FROM Product p"
+            + " WHERE p.idProduct = :idProduct")
+    Optional<ProductQuantity> findQuantity(@Param("idProduct") Long idProduct);
 }
@@ -1,8 +1,23 @@
 package tn.esprit.devops_project.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.devops_project.dto.StockView;
 import tn.esprit.devops_project.entities.Stock;
 
+import java.util.List;
+import java.util.Optional;
 
-public interface StockRepository extends JpaRepository<Stock, Long> {}
+
+public interface StockRepository extends JpaRepository<Stock, Long> {
+
+    @FullScan("list of every stock")
+    @Query("SELECT new tn.esprit.devops_project.dto.StockView(s.idStock, s.title) FROM Stock s ORDER BY s.idStock")
+    List<StockView> findAllViews();
+
+    @Query("SELECT new tn.esprit.devops_project.dto.StockView(s.idStock, s.title) FROM Stock s WHERE s.idStock = :idStock")
+    Optional<StockView> findViewById(@Param("idStock") Long idStock);
+
+}
 
@@ -1,9 +1,28 @@
 package tn.esprit.devops_project.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tn.esprit.devops_project.dto.SupplierStats;
 import tn.esprit.devops_project.entities.Supplier;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface SupplierRepository extends JpaRepository<Supplier, Long> {
 
+	// left join : a supplier without active invoices still gets its row
+	String STATISTICS = "SELECT new tn.esprit.devops_project.dto.SupplierStats(s.idSupplier, s.code, s.label, s.supplierCategory,"
+			+ " count(i.idInvoice), sum(i.amountInvoice), sum(i.amountDiscount), max(i.dateCreationInvoice))"
+			+ " FROM Supplier s LEFT JOIN s.invoices i ON i.archived = false";
+	String STATISTICS_GROUP = " GROUP BY s.idSupplier, s.code, s.label, s.supplierCategory";
+
+	@FullScan("statistics of every supplier, loaded once then refreshed per supplier")
+	@Query(STATISTICS + STATISTICS_GROUP)
+	List<SupplierStats> getStatistics();
+
+	@Query(STATISTICS + " WHERE s.idSupplier IN :ids" + STATISTICS_GROUP)
+	List<SupplierStats> getStatistics(@Param("ids") Collection<Long> ids);
+
 }
@@ -0,0 +1,69 @@
+package tn.esprit.devops_project.services;
+
+import org.springframework.cache.Cache;
+import tn.esprit.devops_project.dto.BatchEntry;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Helpers of the batch lookups by id : one query per entity type whatever the number of ids, the answer in request order.
+ */
+final class BatchLookup {
+
+    // bounds the IN list, and the URL of a GET carrying the ids
+    static final int MAX_BATCH_SIZE = 500;
+
+    private BatchLookup() {
+    }
+
+    // the ids once each, in the order of their first occurrence
+    static List<Long> distinctIds(Collection<Long> ids) {
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        if (distinct.contains(null)) {
+            throw new IllegalArgumentException("Invalid id:null");
+        }
+        if (distinct.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Too many ids:" + distinct.size() + ", at most " + MAX_BATCH_SIZE);
+        }
+        return new ArrayList<>(distinct);
+    }
+
+    // the cached values first, the misses in one query, put back in the cache the single lookups read
+    static <T> Map<Long, T> cachedOrLoaded(List<Long> ids, Cache cache, Class<T> type,
+                                           Function<List<Long>, Iterable<T>> load, Function<T, Long> id) {
+        Map<Long, T> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long key : ids) {
+            T value = cache.get(key, type);
+            if (value != null) {
+                found.put(key, value);
+            } else {
+                misses.add(key);
+            }
+        }
+        if (!misses.isEmpty()) {
+            load.apply(misses).forEach(value -> {
+                cache.put(id.apply(value), value);
+                found.put(id.apply(value), value);
+            });
+        }
+        return found;
+    }
+
+    // the entities mapped to their cached read model
+    static <E, T> List<T> views(Iterable<E> entities, Function<E, T> view) {
+        List<T> views = new ArrayList<>();
+        entities.forEach(entity -> views.add(view.apply(entity)));
+        return views;
+    }
+
+    static <T> List<BatchEntry<T>> inRequestOrder(List<Long> ids, Map<Long, T> found) {
+        return ids.stream().map(key -> BatchEntry.of(key, found.get(key))).collect(Collectors.toList());
+    }
+
+}
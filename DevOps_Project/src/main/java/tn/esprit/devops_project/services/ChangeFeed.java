@@ -0,0 +1,220 @@
+package tn.esprit.devops_project.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tn.esprit.devops_project.dto.ChangeEvent;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Server-Sent Events feed of the product and stock changes, published by the services after commit.
+ * <ul>
+ * <li>each event is serialized once, whatever the number of clients, and kept in a bounded history;</li>
+ * <li>each client has a bounded queue drained by a small shared sender pool, an idle connection holds no thread;</li>
+ * <li>a client whose queue is full is disconnected, the EventSource reconnects with Last-Event-ID and resumes
+ * from the history, or gets a RESYNC event when it is too far behind.</li>
+ * </ul>
+ * Event ids start at the boot time in milliseconds, so the ids of a previous run fall outside the history.
+ */
+@Slf4j
+@Component
+public class ChangeFeed {
+
+    private static final Entry HEARTBEAT = new Entry(0, null, null);
+
+    private final ObjectMapper objectMapper;
+    private final int historySize;
+    private final int clientBuffer;
+    private final Duration timeout;
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis());
+    private final Deque<Entry> history = new ArrayDeque<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders;
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(daemon("change-feed-heartbeat"));
+
+    public ChangeFeed(ObjectMapper objectMapper,
+                      @Value("${app.change-feed.history:10000}") int historySize,
+                      @Value("${app.change-feed.client-buffer:256}") int clientBuffer,
+                      @Value("${app.change-feed.timeout:30m}") Duration timeout,
+                      @Value("${app.change-feed.heartbeat:15s}") Duration heartbeat,
+                      @Value("${app.change-feed.sender-threads:4}") int senderThreads) {
+        this.objectMapper = objectMapper;
+        this.historySize = historySize;
+        this.clientBuffer = clientBuffer;
+        this.timeout = timeout;
+        this.senders = Executors.newFixedThreadPool(senderThreads, daemon("change-feed-sender"));
+        // a heartbeat comment also detects the clients that went away without closing the connection
+        heartbeats.scheduleAtFixedRate(() -> subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT)),
+                heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void publish(ChangeEvent event) {
+        AfterCommit.run(() -> dispatch(event));
+    }
+
+    public int subscribers() {
+        return subscribers.size();
+    }
+
+    public SseEmitter subscribe(Long lastEventId, Predicate<ChangeEvent> filter) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, filter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        // the first comment flushes the response headers, the EventSource is open from then on
+        subscriber.queue.offer(HEARTBEAT);
+        synchronized (history) {
+            if (lastEventId != null && !replay(subscriber, lastEventId)) {
+                subscriber.queue.offer(new Entry(sequence.get(), ChangeEvent.resync(), serialize(ChangeEvent.resync())));
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.schedule();
+        return emitter;
+    }
+
+    // false when the events after lastEventId are not all in the history or do not fit in the client queue
+    private boolean replay(Subscriber subscriber, long lastEventId) {
+        if (lastEventId > sequence.get() || (history.isEmpty() ? lastEventId < sequence.get()
+                : lastEventId < history.peekFirst().id - 1)) {
+            return false;
+        }
+        for (Entry entry : history) {
+            if (entry.id > lastEventId && subscriber.filter.test(entry.event) && !subscriber.queue.offer(entry)) {
+                subscriber.queue.clear();
+                subscriber.queue.offer(HEARTBEAT);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void dispatch(ChangeEvent event) {
+        String data = serialize(event);
+        // ids are given and queued under the lock : every client sees the events in id order
+        synchronized (history) {
+            Entry entry = new Entry(sequence.incrementAndGet(), event, data);
+            history.addLast(entry);
+            if (history.size() > historySize) {
+                history.removeFirst();
+            }
+            subscribers.forEach(subscriber -> subscriber.offer(entry));
+        }
+    }
+
+    private String serialize(ChangeEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdown();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Entry {
+
+        final long id;
+        final ChangeEvent event;
+        final String data;
+
+        Entry(long id, ChangeEvent event, String data) {
+            this.id = id;
+            this.event = event;
+            this.data = data;
+        }
+
+    }
+
+    private final class Subscriber {
+
+        final SseEmitter emitter;
+        final Predicate<ChangeEvent> filter;
+        final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(clientBuffer);
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, Predicate<ChangeEvent> filter) {
+            this.emitter = emitter;
+            this.filter = filter;
+        }
+
+        void offer(Entry entry) {
+            if (closed || (entry != HEARTBEAT && !filter.test(entry.event))) {
+                return;
+            }
+            if (queue.offer(entry)) {
+                schedule();
+            } else if (entry != HEARTBEAT) {
+                log.debug("Change feed client too slow, disconnected after {} pending events", queue.size());
+                close();
+            }
+        }
+
+        void schedule() {
+            if (!closed && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        void drain() {
+            try {
+                Entry entry;
+                while (!closed && (entry = queue.poll()) != null) {
+                    if (entry == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment(""));
+                    } else {
+                        emitter.send(SseEmitter.event().id(Long.toString(entry.id)).name(entry.event.getType().name())
+                                .data(entry.data, MediaType.APPLICATION_JSON));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            } finally {
+                draining.set(false);
+            }
+            if (!closed && !queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+            emitter.complete();
+        }
+
+    }
+
+}
@@ -0,0 +1,365 @@
+package tn.esprit.devops_project.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.devops_project.config.CacheConfig;
+import tn.esprit.devops_project.dto.ChangeEvent;
+import tn.esprit.devops_project.dto.ProductQuantity;
+import tn.esprit.devops_project.repositories.ProductRepository;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Reservation and release of {@link tn.esprit.devops_project.entities.Product#getQuantity()} under contention,
+ * in one of two durability modes (app.inventory.durability) :
+ * <ul>
+ * <li>WRITE_THROUGH : one conditional {@code UPDATE ... WHERE quantity >= ?} per call, durable when it returns;</li>
+ * <li>WRITE_BEHIND : the quantity of a product being reserved lives in striped in-memory counters, each thread
+ * decrementing its own stripe with a CAS, and the movements are added to the database quantity every
+ * app.inventory.flush-interval in one JDBC batch. A crash loses the movements of the last interval and database reads
+ * lag by up to one interval.</li>
+ * </ul>
+ * Neither mode ever writes a quantity below zero. In write-behind, each instance only sees the stock it loaded : a
+ * flush that would take the quantity below zero, other instances or writes having taken it meanwhile, is refused, and
+ * the counter is dropped and reloaded, the reservations it granted past the stock are logged as oversold.
+ */
+@Slf4j
+@Component
+public class InventoryCounters {
+
+    public enum Durability { WRITE_THROUGH, WRITE_BEHIND }
+
+    // one stripe per 64 bytes cache line
+    static final int PADDING = 8;
+    // a counter left unchanged for that many flushes is written back and dropped
+    static final int IDLE_FLUSHES = 50;
+    static final String LOAD_QUANTITY = "select quantity, stock_id_stock from product where id_product = ?";
+    // deltas : the movements of the other instances and the JPA writes in between are kept
+    static final String FLUSH_QUANTITY = "update product set quantity = quantity + ? where id_product = ? and quantity + ? >= 0";
+    static final String FLUSHED_QUANTITY = "select id_product, stock_id_stock, quantity from product where id_product in ";
+    // a caller meeting a counter being written back waits that long for the next one
+    static final long RETIRED_WAIT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate flushTemplate;
+    private final TableVersions tableVersions;
+    private final ChangeFeed changeFeed;
+    private final Cache productCache;
+    private final Durability durability;
+    private final int stripes;
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    public InventoryCounters(ProductRepository productRepository, JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate, TableVersions tableVersions, ChangeFeed changeFeed,
+                             CacheManager cacheManager,
+                             @Value("${app.inventory.durability:WRITE_THROUGH}") Durability durability,
+                             @Value("${app.inventory.stripes:16}") int stripes,
+                             @Value("${app.inventory.flush-interval:200ms}") Duration flushInterval) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        // a flush commits on its own, whatever the transaction of the caller of forget
+        this.flushTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.flushTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.tableVersions = tableVersions;
+        this.changeFeed = changeFeed;
+        this.productCache = cacheManager.getCache(CacheConfig.PRODUCTS);
+        this.durability = durability;
+        this.stripes = stripes;
+        if (durability == Durability.WRITE_BEHIND) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "inventory-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushAll, flushInterval.toMillis(), flushInterval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+            log.info("Inventory counters : write-behind, {} stripes, flushed every {} ms", stripes, flushInterval.toMillis());
+        } else {
+            flusher = null;
+        }
+    }
+
+    public ProductQuantity reserve(Long idProduct, int quantity) {
+        checkQuantity(quantity);
+        if (durability == Durability.WRITE_THROUGH) {
+            ProductQuantity left = transactionTemplate.execute(status -> {
+                if (productRepository.reserveQuantity(idProduct, quantity) == 0) {
+                    productRepository.findQuantity(idProduct).orElseThrow(() -> new NullPointerException("Product not found"));
+                    throw new IllegalArgumentException("Insufficient quantity for product:" + idProduct);
+                }
+                return productRepository.findQuantity(idProduct).orElseThrow(() -> new NullPointerException("Product not found"));
+            });
+            changed(Collections.singletonList(left));
+            return left;
+        }
+        return update(idProduct, counter -> {
+            if (!counter.reserve(quantity)) {
+                throw new IllegalArgumentException("Insufficient quantity for product:" + idProduct);
+            }
+        });
+    }
+
+    public ProductQuantity release(Long idProduct, int quantity) {
+        checkQuantity(quantity);
+        if (durability == Durability.WRITE_THROUGH) {
+            ProductQuantity left = transactionTemplate.execute(status -> {
+                productRepository.releaseQuantity(idProduct, quantity);
+                return productRepository.findQuantity(idProduct).orElseThrow(() -> new NullPointerException("Product not found"));
+            });
+            changed(Collections.singletonList(left));
+            return left;
+        }
+        return update(idProduct, counter -> counter.release(quantity));
+    }
+
+    /**
+     * Writes back and drops the counter of a product, before the product is rewritten or deleted through JPA.
+     * The write-back commits in its own transaction : a rollback of the caller does not undo it.
+     * When it fails, the counter stays in use with its movements, and the next flush writes them.
+     */
+    public void forget(Long idProduct) {
+        Counter counter = idProduct == null ? null : counters.get(idProduct);
+        if (counter == null) {
+            return;
+        }
+        // from now on new callers wait for a fresh counter, the ones already in finish on this one
+        counter.retired = true;
+        boolean written = false;
+        try {
+            awaitInFlight(counter);
+            flush(Collections.singletonList(counter));
+            written = true;
+        } finally {
+            if (written) {
+                counters.remove(idProduct, counter);
+            } else {
+                counter.retired = false;
+            }
+        }
+    }
+
+    private ProductQuantity update(Long idProduct, Consumer<Counter> operation) {
+        long retiredSince = 0;
+        while (true) {
+            Counter counter = counters.computeIfAbsent(idProduct, this::load);
+            if (!counter.retired) {
+                counter.inFlight.increment();
+                try {
+                    // retired between the check and the increment : the write-back may have read the stripes already
+                    if (!counter.retired) {
+                        operation.accept(counter);
+                        // approximate under contention : other threads keep moving the stripes
+                        return new ProductQuantity(idProduct, counter.idStock, (int) counter.sum());
+                    }
+                } finally {
+                    counter.inFlight.decrement();
+                }
+            }
+            if (retiredSince == 0) {
+                retiredSince = System.nanoTime();
+            } else if (System.nanoTime() - retiredSince > RETIRED_WAIT_NANOS) {
+                throw new IllegalStateException("Quantity of product " + idProduct + " is being written back, retry later");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void awaitInFlight(Counter counter) {
+        while (counter.inFlight.sum() != 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private Counter load(Long idProduct) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(LOAD_QUANTITY, idProduct);
+        if (rows.isEmpty()) {
+            throw new NullPointerException("Product not found");
+        }
+        Number idStock = (Number) rows.get(0).get("stock_id_stock");
+        long quantity = ((Number) rows.get(0).get("quantity")).longValue();
+        return new Counter(idProduct, idStock == null ? null : idStock.longValue(), quantity);
+    }
+
+    private void flushAll() {
+        try {
+            flush(new ArrayList<>(counters.values()));
+        } catch (RuntimeException e) {
+            // the counters keep their value, the next flush writes it
+            log.error("Inventory flush failed", e);
+        }
+    }
+
+    private synchronized void flush(Collection<Counter> toFlush) {
+        List<Object[]> batch = new ArrayList<>();
+        List<Counter> written = new ArrayList<>();
+        List<Long> quantities = new ArrayList<>();
+        List<Counter> idle = new ArrayList<>();
+        for (Counter counter : toFlush) {
+            long quantity = counter.consistentSum();
+            if (quantity != counter.flushed) {
+                long delta = quantity - counter.flushed;
+                batch.add(new Object[]{delta, counter.idProduct, delta});
+                written.add(counter);
+                quantities.add(quantity);
+                counter.idleFlushes = 0;
+            } else if (++counter.idleFlushes > IDLE_FLUSHES && !counter.retired) {
+                idle.add(counter);
+            }
+        }
+        if (!batch.isEmpty()) {
+            List<Counter> refused = new ArrayList<>();
+            // on failure nothing is applied and the counters keep their flushed mark : the next flush retries the deltas
+            flushTemplate.executeWithoutResult(status -> {
+                int[] updated = jdbcTemplate.batchUpdate(FLUSH_QUANTITY, batch);
+                List<Long> applied = new ArrayList<>();
+                for (int i = 0; i < written.size(); i++) {
+                    if (updated[i] == 0) {
+                        refused.add(written.get(i));
+                    } else {
+                        applied.add(written.get(i).idProduct);
+                    }
+                }
+                if (!applied.isEmpty()) {
+                    changed(flushedQuantities(applied));
+                }
+            });
+            for (int i = 0; i < written.size(); i++) {
+                if (!refused.contains(written.get(i))) {
+                    written.get(i).flushed = quantities.get(i);
+                }
+            }
+            refused.forEach(this::discard);
+        }
+        idle.forEach(counter -> forget(counter.idProduct));
+    }
+
+    // the database quantities once the deltas are added, the ones the cache and the change feed are told about
+    private List<ProductQuantity> flushedQuantities(List<Long> idProducts) {
+        if (idProducts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String in = String.join(", ", Collections.nCopies(idProducts.size(), "?"));
+        return jdbcTemplate.query(FLUSHED_QUANTITY + "(" + in + ")", (row, rowNumber) -> {
+            Number idStock = (Number) row.getObject(2);
+            return new ProductQuantity(row.getLong(1), idStock == null ? null : idStock.longValue(), row.getInt(3));
+        }, idProducts.toArray());
+    }
+
+    // the product is gone, or its delta would take it below zero : the next caller loads the database quantity
+    private void discard(Counter counter) {
+        counter.retired = true;
+        awaitInFlight(counter);
+        counters.remove(counter.idProduct, counter);
+        log.error("Inventory flush refused for product {} : {} units reserved past the database quantity, or product deleted",
+                counter.idProduct, counter.flushed - counter.consistentSum());
+    }
+
+    private void changed(List<ProductQuantity> quantities) {
+        quantities.forEach(quantity -> {
+            productCache.evict(quantity.getIdProduct());
+            changeFeed.publish(ChangeEvent.quantity(quantity));
+        });
+        tableVersions.touch(TableVersions.PRODUCT);
+    }
+
+    private static void checkQuantity(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Invalid quantity:" + quantity);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+            flushAll();
+        }
+    }
+
+    private final class Counter {
+
+        final Long idProduct;
+        final Long idStock;
+        final AtomicLongArray cells = new AtomicLongArray(stripes * PADDING);
+        final LongAdder inFlight = new LongAdder();
+        volatile boolean retired;
+        // flusher state, guarded by the InventoryCounters monitor
+        long flushed;
+        int idleFlushes;
+
+        Counter(Long idProduct, Long idStock, long quantity) {
+            this.idProduct = idProduct;
+            this.idStock = idStock;
+            this.flushed = quantity;
+            spread(quantity);
+        }
+
+        // fast path on the stripe of the thread, then the other stripes, then all stripes gathered under the monitor
+        boolean reserve(long quantity) {
+            int start = (int) (Thread.currentThread().getId() % stripes);
+            for (int i = 0; i < stripes; i++) {
+                int cell = ((start + i) % stripes) * PADDING;
+                long available;
+                while ((available = cells.get(cell)) >= quantity) {
+                    if (cells.compareAndSet(cell, available, available - quantity)) {
+                        return true;
+                    }
+                }
+            }
+            synchronized (this) {
+                long total = 0;
+                for (int i = 0; i < stripes; i++) {
+                    total += cells.getAndSet(i * PADDING, 0);
+                }
+                boolean reserved = total >= quantity;
+                spread(reserved ? total - quantity : total);
+                return reserved;
+            }
+        }
+
+        void release(long quantity) {
+            cells.getAndAdd((int) (Thread.currentThread().getId() % stripes) * PADDING, quantity);
+        }
+
+        long sum() {
+            long total = 0;
+            for (int i = 0; i < stripes; i++) {
+                total += cells.get(i * PADDING);
+            }
+            return total;
+        }
+
+        // not torn by a slow path reserve, which empties all the stripes before spreading the rest again
+        synchronized long consistentSum() {
+            return sum();
+        }
+
+        private void spread(long quantity) {
+            long share = quantity / stripes;
+            for (int i = 0; i < stripes; i++) {
+                cells.getAndAdd(i * PADDING, i == 0 ? quantity - share * (stripes - 1) : share);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,111 @@
+package tn.esprit.devops_project.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tn.esprit.devops_project.dto.InvoiceArchiveReport;
+import tn.esprit.devops_project.services.Iservices.IInvoiceService;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves the archived invoices created more than app.archive.min-age ago, with their details, from the hot tables to
+ * {@code invoice_archive} and {@code invoice_detail_archive}, every app.archive.interval (zero disables the job).
+ * The hot tables only keep the invoices still worked on, the cold ones are read by id on demand.
+ * <p>
+ * One instance at a time : a run first takes the lease of the job_lock row for app.archive.lock-lease, with a
+ * conditional update, and the instances finding it taken skip their run. The lease must outlast the longest run, it
+ * is given back at the end; the one of a crashed instance expires. The instances compare the lease with their own clock.
+ */
+@Slf4j
+@Component
+// scheduled at startup even with lazy initialization, not on the first invoice request
+@Lazy(false)
+public class InvoiceArchiveJob {
+
+	static final String LOCK_NAME = "invoice-archive";
+	static final String TAKE_LOCK = "update job_lock set locked_until = ?, locked_by = ? where name = ? and locked_until <= ?";
+	static final String GIVE_BACK_LOCK = "update job_lock set locked_until = ? where name = ? and locked_by = ?";
+
+	private final IInvoiceService invoiceService;
+	private final JdbcTemplate jdbcTemplate;
+	private final Duration minAge;
+	private final int chunkSize;
+	private final Duration lockLease;
+	// pid@host
+	private final String instance = ManagementFactory.getRuntimeMXBean().getName();
+	private final ScheduledExecutorService scheduler;
+
+	public InvoiceArchiveJob(IInvoiceService invoiceService, JdbcTemplate jdbcTemplate,
+							 @Value("${app.archive.min-age:365d}") Duration minAge,
+							 @Value("${app.archive.chunk-size:1000}") int chunkSize,
+							 @Value("${app.archive.interval:24h}") Duration interval,
+							 @Value("${app.archive.lock-lease:6h}") Duration lockLease) {
+		this.invoiceService = invoiceService;
+		this.jdbcTemplate = jdbcTemplate;
+		this.minAge = minAge;
+		this.chunkSize = chunkSize;
+		this.lockLease = lockLease;
+		if (interval.isZero() || interval.isNegative()) {
+			scheduler = null;
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "invoice-archive");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::runQuietly, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+		log.info("Invoice archive : archived invoices created more than {} days ago moved every {}", minAge.toDays(), interval);
+	}
+
+	/**
+	 * Moves the archived invoices created before the given date, unless another run holds the lock.
+	 */
+	public InvoiceArchiveReport run(Date createdBefore, int chunkSize) {
+		long now = System.currentTimeMillis();
+		if (jdbcTemplate.update(TAKE_LOCK, new Timestamp(now + lockLease.toMillis()), instance, LOCK_NAME, new Timestamp(now)) == 0) {
+			throw new IllegalStateException("Invoice archive already running on another instance");
+		}
+		try {
+			return invoiceService.archiveInvoices(createdBefore, chunkSize);
+		} finally {
+			jdbcTemplate.update(GIVE_BACK_LOCK, new Timestamp(System.currentTimeMillis()), LOCK_NAME, instance);
+		}
+	}
+
+	// dateCreationInvoice is a DATE : the cutoff is a whole day
+	public Date cutoff() {
+		return Date.from(LocalDate.now().minusDays(minAge.toDays()).atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+
+	private void runQuietly() {
+		try {
+			run(cutoff(), chunkSize);
+		} catch (IllegalStateException e) {
+			log.info("Invoice archive skipped : {}", e.getMessage());
+		} catch (RuntimeException e) {
+			// the moved chunks are committed, the next run resumes with the rest
+			log.error("Invoice archive failed", e);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+package tn.esprit.devops_project.services;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import tn.esprit.devops_project.entities.Invoice;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+
+/**
+ * Keeps the {@code invoice_daily_revenue} rollup in step with every entity level write on {@link Invoice}
+ * (insert, update, delete). The day deltas are applied in the same transaction, right before it commits.
+ * JPQL bulk updates bypass Hibernate events and must adjust the rollup themselves.
+ * <p>
+ * Invoices must not be written outside JPA (plain SQL, JDBC batches, another application) : such rows are not seen here
+ * and the totals drift until the rollup is rebuilt ({@code POST /invoice/price/rollup}).
+ */
+@Component
+// registered at startup even with lazy initialization : no write may miss the rollup
+@Lazy(false)
+@Slf4j
+@AllArgsConstructor
+public class InvoiceRevenueRollupListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+	// one statement : two transactions adding the first amount of the same day would both insert otherwise
+	private static final String ADD_TO_DAY = "insert into invoice_daily_revenue (revenue_date, amount) values (?, ?)"
+			+ " on duplicate key update amount = amount + values(amount)";
+
+	private final EntityManagerFactory entityManagerFactory;
+
+	@PostConstruct
+	void register() {
+		EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+				.getServiceRegistry().getService(EventListenerRegistry.class);
+		registry.appendListeners(EventType.POST_INSERT, this);
+		registry.appendListeners(EventType.POST_UPDATE, this);
+		registry.appendListeners(EventType.POST_DELETE, this);
+	}
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		if (event.getEntity() instanceof Invoice) {
+			Invoice invoice = (Invoice) event.getEntity();
+			if (counted(invoice.getArchived(), invoice.getDateCreationInvoice())) {
+				apply(event.getSession(), invoice.getDateCreationInvoice(), invoice.getAmountInvoice());
+			}
+		}
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		if (!(event.getEntity() instanceof Invoice)) {
+			return;
+		}
+		Invoice invoice = (Invoice) event.getEntity();
+		if (event.getOldState() == null) {
+			log.warn("No previous state for invoice {}, revenue rollup must be rebuilt", invoice.getIdInvoice());
+			return;
+		}
+		String[] properties = event.getPersister().getPropertyNames();
+		Object[] old = event.getOldState();
+		Boolean oldArchived = (Boolean) old[index(properties, "archived")];
+		java.util.Date oldDate = (java.util.Date) old[index(properties, "dateCreationInvoice")];
+		float oldAmount = (Float) old[index(properties, "amountInvoice")];
+		if (counted(oldArchived, oldDate)) {
+			apply(event.getSession(), oldDate, -oldAmount);
+		}
+		if (counted(invoice.getArchived(), invoice.getDateCreationInvoice())) {
+			apply(event.getSession(), invoice.getDateCreationInvoice(), invoice.getAmountInvoice());
+		}
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		if (event.getEntity() instanceof Invoice) {
+			Invoice invoice = (Invoice) event.getEntity();
+			if (counted(invoice.getArchived(), invoice.getDateCreationInvoice())) {
+				apply(event.getSession(), invoice.getDateCreationInvoice(), -invoice.getAmountInvoice());
+			}
+		}
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return false;
+	}
+
+	// same filter as InvoiceRepository.getTotalAmountInvoiceBetweenDates
+	static boolean counted(Boolean archived, java.util.Date dateCreation) {
+		return Boolean.FALSE.equals(archived) && dateCreation != null;
+	}
+
+	private static void apply(EventSource session, java.util.Date day, double delta) {
+		if (delta == 0) {
+			return;
+		}
+		Date sqlDay = new Date(day.getTime());
+		session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> s.doWork(connection -> {
+			try (PreparedStatement add = connection.prepareStatement(ADD_TO_DAY)) {
+				add.setDate(1, sqlDay);
+				add.setDouble(2, delta);
+				add.executeUpdate();
+			}
+		}));
+	}
+
+	private static int index(String[] properties, String name) {
+		return Arrays.asList(properties).indexOf(name);
+	}
+
+}
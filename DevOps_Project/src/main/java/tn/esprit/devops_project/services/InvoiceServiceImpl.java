@@ -2,67 +2,426 @@ package tn.esprit.devops_project.services;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.devops_project.config.CacheConfig;
+import tn.esprit.devops_project.dto.BatchEntry;
+import tn.esprit.devops_project.dto.BulkCancelReport;
+import tn.esprit.devops_project.dto.BulkCancelRequest;
+import tn.esprit.devops_project.dto.CategorySales;
+import tn.esprit.devops_project.dto.DailyAmount;
+import tn.esprit.devops_project.dto.InvoiceArchiveReport;
+import tn.esprit.devops_project.dto.InvoiceDetailView;
+import tn.esprit.devops_project.dto.InvoiceLine;
+import tn.esprit.devops_project.dto.InvoiceView;
+import tn.esprit.devops_project.dto.OperatorAssignmentReport;
+import tn.esprit.devops_project.dto.ProductView;
+import tn.esprit.devops_project.dto.RevenueRollupReport;
+import tn.esprit.devops_project.dto.TopSalesReport;
+import tn.esprit.devops_project.entities.ArchivedInvoice;
+import tn.esprit.devops_project.entities.ArchivedInvoiceDetail;
 import tn.esprit.devops_project.entities.Invoice;
-import tn.esprit.devops_project.entities.Operator;
-import tn.esprit.devops_project.entities.Supplier;
+import tn.esprit.devops_project.entities.InvoiceDailyRevenue;
+import tn.esprit.devops_project.repositories.InvoiceArchiveRepository;
+import tn.esprit.devops_project.repositories.InvoiceDailyRevenueRepository;
 import tn.esprit.devops_project.repositories.InvoiceDetailRepository;
 import tn.esprit.devops_project.repositories.InvoiceRepository;
 import tn.esprit.devops_project.repositories.OperatorRepository;
+import tn.esprit.devops_project.repositories.ProductRepository;
 import tn.esprit.devops_project.repositories.SupplierRepository;
 import tn.esprit.devops_project.services.Iservices.IInvoiceService;
 
-import java.util.Date;
-import java.util.List;
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 @AllArgsConstructor
 public class InvoiceServiceImpl implements IInvoiceService {
 
+	// amounts are floats, sums of many of them drift by a few cents
+	static final double ROLLUP_TOLERANCE = 0.01;
+	static final int MAX_PAGE_SIZE = 1000;
+	static final int DEFAULT_CHUNK_SIZE = 1000;
+	static final int MAX_CHUNK_SIZE = 10000;
+	static final int MAX_TOP_SALES = 100;
+	static final int MAX_ASSIGNED_INVOICES = 10000;
+	// an export without dates : the whole range of a MySQL DATE
+	static final Date EXPORT_FROM = java.sql.Date.valueOf("1000-01-01");
+	static final Date EXPORT_TO = java.sql.Date.valueOf("9999-12-31");
+	// Operator.invoices is a unidirectional join table, its rows are written without loading the collection
+	static final String INSERT_ASSIGNMENT = "insert into operator_invoices (operator_id_operateur, invoices_id_invoice) values (?, ?)";
+
 	final InvoiceRepository invoiceRepository;
 	final OperatorRepository operatorRepository;
 	final InvoiceDetailRepository invoiceDetailRepository;
 	final SupplierRepository supplierRepository;
+	final InvoiceDailyRevenueRepository invoiceDailyRevenueRepository;
+	final InvoiceArchiveRepository invoiceArchiveRepository;
+	final ProductRepository productRepository;
+	final TransactionTemplate transactionTemplate;
+	final JdbcTemplate jdbcTemplate;
+	final TableVersions tableVersions;
+	final EntityManager entityManager;
+	final SupplierStatistics supplierStatistics;
 	
 	@Override
-	public List<Invoice> retrieveAllInvoices() {
-		return invoiceRepository.findAll();
+	@Transactional(readOnly = true)
+	public List<InvoiceView> retrieveAllInvoices() {
+		return toViews(invoiceRepository.retrieveAllInvoicesWithDetails());
 	}
 	@Override
+	@Transactional
+	@CacheEvict(value = CacheConfig.TOP_SALES, allEntries = true)
 	public void cancelInvoice(Long invoiceId) {
-		// method 01
-		Invoice invoice = invoiceRepository.findById(invoiceId).orElseThrow(() -> new NullPointerException("Invoice not found"));
+		// locked : the rollup listener compares against the state a concurrent bulk cancel committed, not a stale one.
+		// managed entity : dirty checking issues the single update at commit
+		Invoice invoice = invoiceRepository.lockInvoice(invoiceId).orElseThrow(() -> new NullPointerException("Invoice not found"));
 		invoice.setArchived(true);
-		invoiceRepository.save(invoice);
-		//method 02 (Avec JPQL)
-		invoiceRepository.updateInvoice(invoiceId);
+		tableVersions.touch(TableVersions.INVOICE);
+	}
+
+	@Override
+	@CacheEvict(value = CacheConfig.TOP_SALES, allEntries = true)
+	public BulkCancelReport cancelInvoices(BulkCancelRequest request) {
+		boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+		if (byIds == request.hasCriteria()) {
+			throw new IllegalArgumentException("Give either invoice ids or supplier/date criteria");
+		}
+		int chunkSize = request.getChunkSize() == null ? DEFAULT_CHUNK_SIZE : request.getChunkSize();
+		if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+			throw new IllegalArgumentException("Invalid chunk size:" + chunkSize);
+		}
+		long start = System.currentTimeMillis();
+		List<Integer> cancelledPerChunk = new ArrayList<>();
+		int cancelled = 0;
+		if (byIds) {
+			List<Long> ids = new ArrayList<>(new TreeSet<>(request.getIds()));
+			for (int from = 0; from < ids.size(); from += chunkSize) {
+				cancelled += cancelChunk(ids.subList(from, Math.min(from + chunkSize, ids.size())), cancelledPerChunk);
+			}
+		} else {
+			Long after = 0L;
+			List<Long> ids;
+			while (!(ids = invoiceRepository.retrieveActiveInvoiceIds(request.getSupplierId(), request.getStartDate(),
+					request.getEndDate(), after, PageRequest.of(0, chunkSize))).isEmpty()) {
+				cancelled += cancelChunk(ids, cancelledPerChunk);
+				after = ids.get(ids.size() - 1);
+			}
+		}
+		return new BulkCancelReport(cancelledPerChunk.size(), cancelled, cancelledPerChunk, System.currentTimeMillis() - start);
+	}
+
+	// one transaction per chunk : the set-based update bypasses the Hibernate listener, so the rollup is adjusted here,
+	// from the rows locked then archived by this chunk only
+	private int cancelChunk(List<Long> ids, List<Integer> cancelledPerChunk) {
+		Integer cancelled = transactionTemplate.execute(status -> {
+			List<Long> locked = new ArrayList<>();
+			Map<Date, Double> amountPerDay = new HashMap<>();
+			for (Invoice invoice : invoiceRepository.lockActiveInvoices(ids)) {
+				locked.add(invoice.getIdInvoice());
+				if (invoice.getDateCreationInvoice() != null) {
+					amountPerDay.merge(invoice.getDateCreationInvoice(), (double) invoice.getAmountInvoice(), Double::sum);
+				}
+			}
+			if (locked.isEmpty()) {
+				return 0;
+			}
+			amountPerDay.forEach((day, amount) -> invoiceDailyRevenueRepository.addAmount(day, -amount));
+			tableVersions.touch(TableVersions.INVOICE);
+			supplierStatistics.invalidate(invoiceRepository.findSupplierIds(locked));
+			return invoiceRepository.archiveInvoices(locked);
+		});
+		cancelledPerChunk.add(cancelled);
+		log.info("Bulk cancel chunk {} : {} of {} invoices archived", cancelledPerChunk.size(), cancelled, ids.size());
+		return cancelled;
+	}
+
+	// archived invoices do not count in any hot query (rollup, top sales, workload), moving them changes no figure
+	@Override
+	public InvoiceArchiveReport archiveInvoices(Date createdBefore, int chunkSize) {
+		if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+			throw new IllegalArgumentException("Invalid chunk size:" + chunkSize);
+		}
+		long start = System.currentTimeMillis();
+		int chunks = 0;
+		int invoices = 0;
+		int details = 0;
+		Long after = 0L;
+		List<Long> ids;
+		while (!(ids = invoiceRepository.retrieveArchivedInvoiceIds(createdBefore, after,
+				PageRequest.of(0, chunkSize))).isEmpty()) {
+			int[] moved = moveChunk(ids);
+			chunks++;
+			invoices += moved[0];
+			details += moved[1];
+			after = ids.get(ids.size() - 1);
+		}
+		log.info("Invoice archive : {} invoices and {} details created before {} moved in {} chunks",
+				invoices, details, createdBefore, chunks);
+		return new InvoiceArchiveReport(createdBefore, chunks, invoices, details, System.currentTimeMillis() - start);
+	}
+
+	// one transaction per chunk : copy then delete, children first, the hot tables only keep short row locks
+	private int[] moveChunk(List<Long> ids) {
+		return transactionTemplate.execute(status -> {
+			Date archivedAt = new Date();
+			invoiceArchiveRepository.copyInvoices(ids, archivedAt);
+			int details = invoiceArchiveRepository.copyInvoiceDetails(ids);
+			invoiceDetailRepository.deleteByInvoiceIds(ids);
+			operatorRepository.deleteAssignments(ids);
+			int invoices = invoiceRepository.deleteArchivedInvoices(ids);
+			tableVersions.touch(TableVersions.INVOICE, TableVersions.OPERATOR);
+			return new int[]{invoices, details};
+		});
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public InvoiceView retrieveInvoice(Long invoiceId) {
+
+		return invoiceRepository.findWithDetailsByIdInvoice(invoiceId).map(InvoiceView::from)
+				.or(() -> invoiceArchiveRepository.findById(invoiceId)
+						.map(invoice -> fromArchive(Collections.singletonList(invoice)).get(0)))
+				.orElseThrow(() -> new NullPointerException("Invoice not found"));
 	}
 
+	// the hot table first, the ids it does not have from the archive : at most four queries whatever the number of ids
 	@Override
-	public Invoice retrieveInvoice(Long invoiceId) {
+	@Transactional(readOnly = true)
+	public List<BatchEntry<InvoiceView>> retrieveInvoices(Collection<Long> invoiceIds) {
+		List<Long> ids = BatchLookup.distinctIds(invoiceIds);
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Map<Long, InvoiceView> found = new HashMap<>();
+		toViews(invoiceRepository.retrieveInvoicesWithDetails(ids)).forEach(view -> found.put(view.getIdInvoice(), view));
+		List<Long> misses = ids.stream().filter(id -> !found.containsKey(id)).collect(Collectors.toList());
+		if (!misses.isEmpty()) {
+			fromArchive(invoiceArchiveRepository.findAllById(misses)).forEach(view -> found.put(view.getIdInvoice(), view));
+		}
+		return BatchLookup.inRequestOrder(ids, found);
+	}
 
-		return invoiceRepository.findById(invoiceId).orElseThrow(() -> new NullPointerException("Invoice not found"));
+	private List<InvoiceView> fromArchive(List<ArchivedInvoice> invoices) {
+		if (invoices.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Map<Long, List<ArchivedInvoiceDetail>> details = invoiceArchiveRepository.findDetails(invoices.stream()
+				.map(ArchivedInvoice::getIdInvoice).collect(Collectors.toList())).stream()
+				.collect(Collectors.groupingBy(ArchivedInvoiceDetail::getIdInvoice));
+		Map<Long, ProductView> products = new HashMap<>();
+		productRepository.findAllById(details.values().stream().flatMap(List::stream).map(ArchivedInvoiceDetail::getIdProduct)
+				.filter(Objects::nonNull).collect(Collectors.toSet()))
+				.forEach(product -> products.put(product.getIdProduct(), ProductView.from(product)));
+		return invoices.stream().map(invoice -> InvoiceView.from(invoice,
+				details.getOrDefault(invoice.getIdInvoice(), Collections.emptyList()).stream()
+						.map(detail -> InvoiceDetailView.from(detail, products.get(detail.getIdProduct())))
+						.collect(Collectors.toList())))
+				.collect(Collectors.toList());
 	}
 
 	@Override
-	public List<Invoice> getInvoicesBySupplier(Long idSupplier) {
-		Supplier supplier = supplierRepository.findById(idSupplier).orElseThrow(() -> new NullPointerException("Supplier not found"));
-		return (List<Invoice>) supplier.getInvoices();
+	@Transactional(readOnly = true)
+	public List<InvoiceView> getInvoicesBySupplier(Long idSupplier, Long after, int size) {
+		if (!supplierRepository.existsById(idSupplier)) {
+			throw new NullPointerException("Supplier not found");
+		}
+		if (size <= 0) {
+			throw new IllegalArgumentException("Invalid page size:" + size);
+		}
+		List<Long> ids = invoiceRepository.retrieveInvoicesBySupplier(idSupplier, after == null ? 0L : after,
+				PageRequest.of(0, Math.min(size, MAX_PAGE_SIZE)));
+		return ids.isEmpty() ? Collections.emptyList() : toViews(invoiceRepository.retrieveInvoicesWithDetails(ids));
 	}
 
 	@Override
+	@Transactional(readOnly = true)
+	public void checkExport(Date startDate, Date endDate, Long idSupplier) {
+		Date from = startDate == null ? EXPORT_FROM : startDate;
+		Date to = endDate == null ? EXPORT_TO : endDate;
+		if (from.after(to)) {
+			throw new IllegalArgumentException("Invalid date range:" + startDate + " - " + endDate);
+		}
+		if (idSupplier != null && !supplierRepository.existsById(idSupplier)) {
+			throw new NullPointerException("Supplier not found");
+		}
+	}
+
+	// the hot table then the archive, each in date order, over forward-only cursors
+	@Override
+	@Transactional(readOnly = true)
+	public void exportInvoiceLines(Date startDate, Date endDate, Long idSupplier, Consumer<InvoiceLine> consumer) {
+		checkExport(startDate, endDate, idSupplier);
+		Date from = startDate == null ? EXPORT_FROM : startDate;
+		Date to = endDate == null ? EXPORT_TO : endDate;
+		long start = System.currentTimeMillis();
+		long lines;
+		try (Stream<InvoiceLine> hot = idSupplier == null ? invoiceRepository.streamLines(from, to)
+				: invoiceRepository.streamLinesOfSupplier(idSupplier, from, to)) {
+			lines = export(hot, consumer);
+		}
+		try (Stream<InvoiceLine> cold = idSupplier == null ? invoiceArchiveRepository.streamLines(from, to)
+				: invoiceArchiveRepository.streamLinesOfSupplier(idSupplier, from, to)) {
+			lines += export(cold, consumer);
+		}
+		log.info("Invoice export : {} lines in {} ms", lines, System.currentTimeMillis() - start);
+	}
+
+	// projections are never managed, the clear only keeps whatever else the session holds from piling up
+	private long export(Stream<InvoiceLine> lines, Consumer<InvoiceLine> consumer) {
+		long count = 0;
+		Iterator<InvoiceLine> iterator = lines.iterator();
+		while (iterator.hasNext()) {
+			consumer.accept(iterator.next());
+			if (++count % InvoiceRepository.FETCH_SIZE == 0) {
+				entityManager.clear();
+			}
+		}
+		return count;
+	}
+
+	// mapped inside the transaction : with open-session-in-view off nothing can be lazy loaded during serialization
+	private static List<InvoiceView> toViews(List<Invoice> invoices) {
+		return invoices.stream().map(InvoiceView::from).collect(Collectors.toList());
+	}
+
+	@Override
+	@Transactional
 	public void assignOperatorToInvoice(Long idOperator, Long idInvoice) {
-		Invoice invoice = invoiceRepository.findById(idInvoice).orElseThrow(() -> new NullPointerException("Invoice not found"));
-		Operator operator = operatorRepository.findById(idOperator).orElseThrow(() -> new NullPointerException("Operator not found"));
-		operator.getInvoices().add(invoice);
-		operatorRepository.save(operator);
+		OperatorAssignmentReport report = assignOperatorToInvoices(idOperator, Collections.singletonList(idInvoice));
+		if (!report.getNotFound().isEmpty()) {
+			throw new NullPointerException("Invoice not found");
+		}
+		if (!report.getAssignedToAnotherOperator().isEmpty()) {
+			throw new IllegalArgumentException("Invoice already assigned to another operator:" + idInvoice);
+		}
 	}
 
 	@Override
+	@Transactional
+	public OperatorAssignmentReport assignOperatorToInvoices(Long idOperator, Collection<Long> invoiceIds) {
+		if (!operatorRepository.existsById(idOperator)) {
+			throw new NullPointerException("Operator not found");
+		}
+		if (invoiceIds == null || invoiceIds.isEmpty() || invoiceIds.size() > MAX_ASSIGNED_INVOICES) {
+			throw new IllegalArgumentException("Invalid number of invoices:" + (invoiceIds == null ? 0 : invoiceIds.size()));
+		}
+		List<Long> ids = new ArrayList<>(new TreeSet<>(invoiceIds));
+		List<Long> toAssign = new ArrayList<>();
+		List<Long> alreadyAssigned = new ArrayList<>();
+		List<Long> assignedToAnotherOperator = new ArrayList<>();
+		List<Long> notFound = new ArrayList<>();
+		for (int from = 0; from < ids.size(); from += DEFAULT_CHUNK_SIZE) {
+			List<Long> chunk = ids.subList(from, Math.min(from + DEFAULT_CHUNK_SIZE, ids.size()));
+			Set<Long> existing = new HashSet<>(invoiceRepository.findExistingIds(chunk));
+			Map<Long, Long> operators = new HashMap<>();
+			for (Object[] assignment : operatorRepository.findAssignments(chunk)) {
+				operators.put(((Number) assignment[0]).longValue(), ((Number) assignment[1]).longValue());
+			}
+			for (Long id : chunk) {
+				Long owner = operators.get(id);
+				if (!existing.contains(id)) {
+					notFound.add(id);
+				} else if (owner == null) {
+					toAssign.add(id);
+				} else if (owner.equals(idOperator)) {
+					alreadyAssigned.add(id);
+				} else {
+					assignedToAnotherOperator.add(id);
+				}
+			}
+		}
+		jdbcTemplate.batchUpdate(INSERT_ASSIGNMENT, toAssign, DEFAULT_CHUNK_SIZE, (ps, id) -> {
+			ps.setLong(1, idOperator);
+			ps.setLong(2, id);
+		});
+		// plain JDBC : no Hibernate event, the list ETags are bumped here
+		if (!toAssign.isEmpty()) {
+			tableVersions.touch(TableVersions.INVOICE, TableVersions.OPERATOR);
+		}
+		return new OperatorAssignmentReport(idOperator, toAssign.size(), alreadyAssigned, assignedToAnotherOperator, notFound);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
 	public float getTotalAmountInvoiceBetweenDates(Date startDate, Date endDate) {
-		return invoiceRepository.getTotalAmountInvoiceBetweenDates(startDate, endDate);
+		return (float) invoiceDailyRevenueRepository.sumAmountBetweenDates(startDate, endDate);
 	}
 
+	@Override
+	@Transactional
+	public int rebuildRevenueRollup() {
+		invoiceDailyRevenueRepository.deleteAllDays();
+		int days = invoiceDailyRevenueRepository.rebuildFromInvoices();
+		log.info("Revenue rollup rebuilt : {} days", days);
+		return days;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public RevenueRollupReport verifyRevenueRollup() {
+		Map<Long, Double> rollup = new HashMap<>();
+		double rollupTotal = 0;
+		for (InvoiceDailyRevenue day : invoiceDailyRevenueRepository.findAll()) {
+			rollup.put(day.getRevenueDate().getTime(), day.getAmount());
+			rollupTotal += day.getAmount();
+		}
+		List<DailyAmount> invoiceDays = invoiceRepository.getAmountPerDay();
+		List<Date> mismatchedDays = new ArrayList<>();
+		double invoiceTotal = 0;
+		for (DailyAmount day : invoiceDays) {
+			Double rolled = rollup.remove(day.getRevenueDate().getTime());
+			if (rolled == null || Math.abs(rolled - day.getAmount()) > ROLLUP_TOLERANCE) {
+				mismatchedDays.add(day.getRevenueDate());
+			}
+			invoiceTotal += day.getAmount();
+		}
+		// days left in the rollup have no invoice anymore, they must be zero
+		rollup.forEach((day, amount) -> {
+			if (Math.abs(amount) > ROLLUP_TOLERANCE) {
+				mismatchedDays.add(new Date(day));
+			}
+		});
+		return new RevenueRollupReport(invoiceDays.size() + rollup.size(), mismatchedDays, rollupTotal, invoiceTotal);
+	}
+
+	// only closed periods are cached : the whole end day is in the past, so new invoices cannot change the result
+	// fills the cache : on the primary, see CacheConfig
+	@Override
+	@Transactional
+	@Cacheable(value = CacheConfig.TOP_SALES, condition = "#endDate.time + 86400000 <= T(System).currentTimeMillis()")
+	public TopSalesReport getTopSales(Date startDate, Date endDate, Long idSupplier, int limit) {
+		if (startDate.after(endDate)) {
+			throw new IllegalArgumentException("Start date after end date");
+		}
+		if (limit <= 0 || limit > MAX_TOP_SALES) {
+			throw new IllegalArgumentException("Invalid limit:" + limit);
+		}
+		if (idSupplier != null && !supplierRepository.existsById(idSupplier)) {
+			throw new NullPointerException("Supplier not found");
+		}
+		Pageable top = PageRequest.of(0, limit);
+		// at most one row per category, ranked here rather than with a second grouped query
+		List<CategorySales> categories = invoiceDetailRepository.getSalesPerCategory(startDate, endDate, idSupplier);
+		return new TopSalesReport(startDate, endDate, idSupplier,
+				invoiceDetailRepository.getTopProductsByRevenue(startDate, endDate, idSupplier, top),
+				invoiceDetailRepository.getTopProductsByUnits(startDate, endDate, idSupplier, top),
+				top(categories, Comparator.comparing(CategorySales::getRevenue), limit),
+				top(categories, Comparator.comparing(CategorySales::getUnits), limit));
+	}
+
+	private static List<CategorySales> top(List<CategorySales> categories, Comparator<CategorySales> comparator, int limit) {
+		return categories.stream().sorted(comparator.reversed()).limit(limit).collect(Collectors.toList());
+	}
 
-}
\ No newline at end of file
+}
@@ -1,20 +1,49 @@
 package tn.esprit.devops_project.services.Iservices;
 
-import tn.esprit.devops_project.entities.Invoice;
+import tn.esprit.devops_project.dto.BatchEntry;
+import tn.esprit.devops_project.dto.BulkCancelReport;
+import tn.esprit.devops_project.dto.BulkCancelRequest;
+import tn.esprit.devops_project.dto.InvoiceArchiveReport;
+import tn.esprit.devops_project.dto.InvoiceLine;
+import tn.esprit.devops_project.dto.InvoiceView;
+import tn.esprit.devops_project.dto.OperatorAssignmentReport;
+import tn.esprit.devops_project.dto.RevenueRollupReport;
+import tn.esprit.devops_project.dto.TopSalesReport;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface IInvoiceService {
-	List<Invoice> retrieveAllInvoices();
+	List<InvoiceView> retrieveAllInvoices();
 
-	List<Invoice> getInvoicesBySupplier(Long idSupplier);
+	List<InvoiceView> getInvoicesBySupplier(Long idSupplier, Long after, int size);
 
 	void cancelInvoice(Long id);
 
-	Invoice retrieveInvoice(Long id);
+	BulkCancelReport cancelInvoices(BulkCancelRequest request);
+
+	InvoiceArchiveReport archiveInvoices(Date createdBefore, int chunkSize);
+
+	InvoiceView retrieveInvoice(Long id);
+
+	List<BatchEntry<InvoiceView>> retrieveInvoices(Collection<Long> ids);
+
+	// the errors exportInvoiceLines would raise before its first line
+	void checkExport(Date startDate, Date endDate, Long idSupplier);
+
+	void exportInvoiceLines(Date startDate, Date endDate, Long idSupplier, Consumer<InvoiceLine> consumer);
 	
 	void assignOperatorToInvoice(Long idOperator, Long idInvoice);
 
+	OperatorAssignmentReport assignOperatorToInvoices(Long idOperator, Collection<Long> invoiceIds);
+
 	float getTotalAmountInvoiceBetweenDates(Date startDate, Date endDate);
+
+	int rebuildRevenueRollup();
+
+	RevenueRollupReport verifyRevenueRollup();
+
+	TopSalesReport getTopSales(Date startDate, Date endDate, Long idSupplier, int limit);
 }
@@ -1,5 +1,7 @@
 package tn.esprit.devops_project.services.Iservices;
 
+import tn.esprit.devops_project.dto.OperatorView;
+import tn.esprit.devops_project.dto.OperatorWorkload;
 import tn.esprit.devops_project.entities.Operator;
 
 import java.util.List;
@@ -15,6 +17,8 @@ public interface IOperatorService {
 
 	Operator updateOperator(Operator operator);
 
-	Operator retrieveOperator(Long id);
+	OperatorView retrieveOperator(Long id);
+
+	List<OperatorWorkload> retrieveOperatorWorkload(Long id);
 
 }
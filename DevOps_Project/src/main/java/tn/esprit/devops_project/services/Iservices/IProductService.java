@@ -1,18 +1,33 @@
 package tn.esprit.devops_project.services.Iservices;
 
+import tn.esprit.devops_project.dto.BatchEntry;
+import tn.esprit.devops_project.dto.ProductImportReport;
+import tn.esprit.devops_project.dto.ProductQuantity;
+import tn.esprit.devops_project.dto.ProductView;
 import tn.esprit.devops_project.entities.Product;
 import tn.esprit.devops_project.entities.ProductCategory;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface IProductService {
 
     Product addProduct(Product product, Long idStock);
-    Product retrieveProduct(Long id);
-    List<Product> retreiveAllProduct();
+    ProductView retrieveProduct(Long id);
+    List<BatchEntry<ProductView>> retrieveProducts(Collection<Long> ids);
+    List<Product> retreiveAllProduct(Long after, int size);
     List<Product> retrieveProductByCategory(ProductCategory category);
+    List<Product> searchProducts(String query, ProductCategory category, int limit);
     void deleteProduct(Long id);
-    List<Product> retreiveProductStock(Long id);
+    List<Product> retreiveProductStock(Long id, Long after, int size);
+    void streamAllProduct(Consumer<Product> consumer);
+    void streamProductStock(Long id, Consumer<Product> consumer);
+    ProductImportReport importProducts(BufferedReader reader, boolean ndjson, int batchSize) throws IOException;
+    ProductQuantity reserveQuantity(Long id, int quantity);
+    ProductQuantity releaseQuantity(Long id, int quantity);
 
 
 }
@@ -1,5 +1,7 @@
 package tn.esprit.devops_project.services.Iservices;
 
+import tn.esprit.devops_project.dto.InventoryValuation;
+import tn.esprit.devops_project.dto.StockView;
 import tn.esprit.devops_project.entities.Stock;
 
 import java.util.List;
@@ -7,7 +9,8 @@ import java.util.List;
 public interface IStockService {
 
     Stock addStock(Stock stock);
-    Stock retrieveStock(Long id);
-    List<Stock> retrieveAllStock();
+    StockView retrieveStock(Long id);
+    List<StockView> retrieveAllStock();
+    List<InventoryValuation> retrieveInventoryValuation(Long idStock);
 
 }
@@ -1,7 +1,11 @@
 package tn.esprit.devops_project.services.Iservices;
 
+import tn.esprit.devops_project.dto.BatchEntry;
+import tn.esprit.devops_project.dto.SupplierCategoryStats;
+import tn.esprit.devops_project.dto.SupplierView;
 import tn.esprit.devops_project.entities.Supplier;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ISupplierService {
@@ -14,6 +18,10 @@ public interface ISupplierService {
 
 	Supplier updateSupplier(Supplier supplier);
 
-	Supplier retrieveSupplier(Long id);
+	SupplierView retrieveSupplier(Long id);
+
+	List<BatchEntry<SupplierView>> retrieveSuppliers(Collection<Long> ids);
+
+	List<SupplierCategoryStats> retrieveSupplierStatistics();
 
 }
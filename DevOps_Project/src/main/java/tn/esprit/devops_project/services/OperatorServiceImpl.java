@@ -4,7 +4,13 @@ import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.devops_project.config.CacheConfig;
+import tn.esprit.devops_project.dto.OperatorView;
+import tn.esprit.devops_project.dto.OperatorWorkload;
 import tn.esprit.devops_project.entities.Operator;
 import tn.esprit.devops_project.repositories.OperatorRepository;
 import tn.esprit.devops_project.services.Iservices.IOperatorService;
@@ -17,30 +23,52 @@ import java.util.List;
 public class OperatorServiceImpl implements IOperatorService {
 
 	OperatorRepository operatorRepository;
+	TableVersions tableVersions;
+
 	@Override
+	@Transactional(readOnly = true)
 	public List<Operator> retrieveAllOperators() {
 		return (List<Operator>) operatorRepository.findAll();
 	}
 
 	@Override
+	@CacheEvict(value = CacheConfig.OPERATORS, key = "#result.idOperateur")
 	public Operator addOperator(Operator operator) {
-		return operatorRepository.save(operator);
+		Operator saved = operatorRepository.save(operator);
+		tableVersions.touch(TableVersions.OPERATOR);
+		return saved;
 	}
 
 	@Override
+	@CacheEvict(CacheConfig.OPERATORS)
 	public void deleteOperator(Long id) {
 		operatorRepository.deleteById(id);
-		
+		tableVersions.touch(TableVersions.OPERATOR);
 	}
 
 	@Override
+	@CacheEvict(value = CacheConfig.OPERATORS, key = "#result.idOperateur")
 	public Operator updateOperator(Operator operator) {
-		return operatorRepository.save(operator);
+		Operator saved = operatorRepository.save(operator);
+		tableVersions.touch(TableVersions.OPERATOR);
+		return saved;
+	}
+
+	// fills the cache : on the primary, see CacheConfig
+	@Override
+	@Transactional
+	@Cacheable(CacheConfig.OPERATORS)
+	public OperatorView retrieveOperator(Long id) {
+		return operatorRepository.findById(id).map(OperatorView::from).orElseThrow(() -> new NullPointerException("Operator not found"));
 	}
 
 	@Override
-	public Operator retrieveOperator(Long id) {
-		return operatorRepository.findById(id).orElseThrow(() -> new NullPointerException("Operator not found"));
+	@Transactional(readOnly = true)
+	public List<OperatorWorkload> retrieveOperatorWorkload(Long id) {
+		if (id != null && !operatorRepository.existsById(id)) {
+			throw new NullPointerException("Operator not found");
+		}
+		return id == null ? operatorRepository.getWorkload() : operatorRepository.getWorkload(id);
 	}
 
 }
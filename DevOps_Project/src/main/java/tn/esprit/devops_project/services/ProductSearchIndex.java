@@ -0,0 +1,281 @@
+package tn.esprit.devops_project.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.devops_project.dto.ProductTerms;
+import tn.esprit.devops_project.entities.ProductCategory;
+import tn.esprit.devops_project.repositories.ProductRepository;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-process inverted index over {@code Product.title} and {@code Product.category}.
+ * Tokens are kept in a sorted dictionary so that every query token is matched as a prefix; each token points
+ * to the sorted ids of the products holding it. Built at startup before the web server opens its port, so no search
+ * sees a partial index, then updated by {@link ProductServiceImpl} once the writes are committed.
+ */
+@Component
+// built at startup even with lazy initialization, not by the first search
+@Lazy(false)
+@Slf4j
+@RequiredArgsConstructor
+public class ProductSearchIndex implements SmartInitializingSingleton {
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final NavigableMap<String, Postings> tokens = new TreeMap<>();
+    private final Map<ProductCategory, Postings> categories = new EnumMap<>(ProductCategory.class);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // once every singleton is created, before the lifecycle beans start, the web server among them
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.currentTimeMillis();
+        long indexed = indexAfter(0L);
+        log.info("Product search index built : {} products, {} tokens in {} ms", indexed, tokens.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Indexes the products whose id is greater than {@code idProduct}, i.e. the rows inserted since that id was the
+     * highest one.
+     */
+    public long indexAfter(Long idProduct) {
+        Long indexed = transactionTemplate.execute(status -> {
+            long count = 0;
+            try (Stream<ProductTerms> products = productRepository.streamTermsAfter(idProduct)) {
+                for (Iterator<ProductTerms> it = products.iterator(); it.hasNext(); count++) {
+                    ProductTerms product = it.next();
+                    add(product.getIdProduct(), product.getTitle(), product.getCategory());
+                }
+            }
+            return count;
+        });
+        return indexed == null ? 0 : indexed;
+    }
+
+    public void add(Long idProduct, String title, ProductCategory category) {
+        lock.writeLock().lock();
+        try {
+            for (String token : tokenize(title, category)) {
+                tokens.computeIfAbsent(token, t -> new Postings()).add(idProduct);
+            }
+            if (category != null) {
+                categories.computeIfAbsent(category, c -> new Postings()).add(idProduct);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long idProduct, String title, ProductCategory category) {
+        lock.writeLock().lock();
+        try {
+            for (String token : tokenize(title, category)) {
+                Postings postings = tokens.get(token);
+                if (postings != null && postings.remove(idProduct) && postings.size == 0) {
+                    tokens.remove(token);
+                }
+            }
+            if (category != null && categories.containsKey(category)) {
+                categories.get(category).remove(idProduct);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids, in ascending order, of the products having for every token of {@code query} a title or category token
+     * starting with it, optionally restricted to one category.
+     * The sorted postings are walked in place, leapfrogging to the next common id, and the walk stops at {@code limit}
+     * ids : a short prefix or a large category costs the ids read, not the size of their postings.
+     */
+    public List<Long> search(String query, ProductCategory category, int limit) {
+        Set<String> queryTokens = tokenize(query, null);
+        if (queryTokens.isEmpty() && category == null) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            List<Cursor> cursors = new ArrayList<>();
+            if (category != null) {
+                Postings postings = categories.get(category);
+                if (postings == null) {
+                    return Collections.emptyList();
+                }
+                cursors.add(new PostingsCursor(postings));
+            }
+            for (String token : queryTokens) {
+                Collection<Postings> matching = tokens.subMap(token, true, token + Character.MAX_VALUE, false).values();
+                if (matching.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                cursors.add(matching.size() == 1 ? new PostingsCursor(matching.iterator().next()) : new UnionCursor(matching));
+            }
+            // the shortest list leads
+            cursors.sort(Comparator.comparingLong(Cursor::cost));
+            List<Long> ids = new ArrayList<>(Math.min(limit, 16));
+            long candidate = 0;
+            while (ids.size() < limit) {
+                boolean everywhere = true;
+                for (Cursor cursor : cursors) {
+                    cursor.advance(candidate);
+                    if (cursor.current() != candidate) {
+                        candidate = cursor.current();
+                        everywhere = false;
+                        break;
+                    }
+                }
+                if (candidate == Cursor.END) {
+                    break;
+                }
+                if (everywhere) {
+                    ids.add(candidate);
+                    candidate++;
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static Set<String> tokenize(String text, ProductCategory category) {
+        Set<String> result = new LinkedHashSet<>();
+        if (text != null) {
+            for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                if (!token.isEmpty()) {
+                    result.add(token);
+                }
+            }
+        }
+        if (category != null) {
+            result.add(category.name().toLowerCase(Locale.ROOT));
+        }
+        return result;
+    }
+
+    /** Sorted, duplicate free product ids of one token. */
+    private static final class Postings {
+
+        long[] ids = new long[4];
+        int size;
+
+        void add(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            int insertion = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, insertion, ids, insertion + 1, size - insertion);
+            ids[insertion] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+    }
+
+    /** Ascending ids of a search term, read without copy under the read lock. */
+    private interface Cursor {
+
+        long END = Long.MAX_VALUE;
+
+        // END once exhausted
+        long current();
+
+        // moves to the first id greater than or equal to target
+        void advance(long target);
+
+        long cost();
+    }
+
+    private static final class PostingsCursor implements Cursor {
+
+        final Postings postings;
+        int index;
+
+        PostingsCursor(Postings postings) {
+            this.postings = postings;
+        }
+
+        @Override
+        public long current() {
+            return index < postings.size ? postings.ids[index] : END;
+        }
+
+        @Override
+        public void advance(long target) {
+            if (current() < target) {
+                int found = Arrays.binarySearch(postings.ids, index, postings.size, target);
+                index = found >= 0 ? found : -found - 1;
+            }
+        }
+
+        @Override
+        public long cost() {
+            return postings.size;
+        }
+    }
+
+    /** Every token starting with a prefix : a heap of their cursors, a cursor only moves once the walk passes it. */
+    private static final class UnionCursor implements Cursor {
+
+        final PriorityQueue<PostingsCursor> heap;
+        final long cost;
+
+        UnionCursor(Collection<Postings> matching) {
+            heap = new PriorityQueue<>(matching.size(), Comparator.comparingLong(PostingsCursor::current));
+            long total = 0;
+            for (Postings postings : matching) {
+                if (postings.size > 0) {
+                    heap.add(new PostingsCursor(postings));
+                    total += postings.size;
+                }
+            }
+            cost = total;
+        }
+
+        @Override
+        public long current() {
+            return heap.isEmpty() ? END : heap.peek().current();
+        }
+
+        @Override
+        public void advance(long target) {
+            while (!heap.isEmpty() && heap.peek().current() < target) {
+                PostingsCursor cursor = heap.poll();
+                cursor.advance(target);
+                if (cursor.current() != END) {
+                    heap.add(cursor);
+                }
+            }
+        }
+
+        @Override
+        public long cost() {
+            return cost;
+        }
+    }
+
+}
@@ -1,8 +1,23 @@
 package tn.esprit.devops_project.services;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.devops_project.config.CacheConfig;
+import tn.esprit.devops_project.dto.BatchEntry;
+import tn.esprit.devops_project.dto.ChangeEvent;
+import tn.esprit.devops_project.dto.ProductImportReport;
+import tn.esprit.devops_project.dto.ProductQuantity;
+import tn.esprit.devops_project.dto.ProductView;
 import tn.esprit.devops_project.services.Iservices.IProductService;
 import tn.esprit.devops_project.entities.Product;
 import tn.esprit.devops_project.entities.ProductCategory;
@@ -10,45 +25,337 @@ import tn.esprit.devops_project.entities.Stock;
 import tn.esprit.devops_project.repositories.ProductRepository;
 import tn.esprit.devops_project.repositories.StockRepository;
 
-import java.util.List;
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
 @Slf4j
 public class ProductServiceImpl implements IProductService {
 
+   static final int MAX_PAGE_SIZE = 1000;
+   static final int MAX_SEARCH_RESULTS = 100;
+   static final int MAX_IMPORT_BATCH_SIZE = 10000;
+   static final int MAX_REPORTED_REJECTIONS = 100;
+   static final String[] IMPORT_COLUMNS = {"title", "price", "quantity", "category", "stockId"};
+   // plain JDBC batch : Product ids are IDENTITY, which disables Hibernate insert batching
+   static final String INSERT_PRODUCT = "insert into product (title, price, quantity, category, stock_id_stock) values (?, ?, ?, ?, ?)";
+
    final ProductRepository productRepository;
    final StockRepository stockRepository;
+   final EntityManager entityManager;
+   final JdbcTemplate jdbcTemplate;
+   final TransactionTemplate transactionTemplate;
+   final ObjectMapper objectMapper;
+   final ProductSearchIndex productSearchIndex;
+   final TableVersions tableVersions;
+   final ChangeFeed changeFeed;
+   final InventoryCounters inventoryCounters;
+   final CacheManager cacheManager;
 
+    // one transaction : the stock and the previous product are read from the primary, never from a replica
     @Override
+    @Transactional
+    @CacheEvict(value = CacheConfig.PRODUCTS, key = "#result.idProduct")
     public Product addProduct(Product product, Long idStock) {
         Stock stock = stockRepository.findById(idStock).orElseThrow(() -> new NullPointerException("stock not found"));
         product.setStock(stock);
-        return productRepository.save(product);
+        // a write-behind counter is written back first, in its own transaction : the rewritten quantity replaces it,
+        // the movements of the counters loaded after that are added on top of it
+        inventoryCounters.forget(product.getIdProduct());
+        Product old = product.getIdProduct() == null ? null : productRepository.findById(product.getIdProduct()).orElse(null);
+        Long previousIdStock = null;
+        if (old != null) {
+            // the id of a lazy stock proxy is read without loading the stock
+            previousIdStock = old.getStock() == null ? null : old.getStock().getIdStock();
+            // save merges onto the managed instance : once detached, old keeps the previous state
+            entityManager.detach(old);
+        }
+        Product saved = productRepository.save(product);
+        // the shared index only ever holds committed products
+        AfterCommit.run(() -> {
+            if (old != null) {
+                productSearchIndex.remove(old.getIdProduct(), old.getTitle(), old.getCategory());
+            }
+            productSearchIndex.add(saved.getIdProduct(), saved.getTitle(), saved.getCategory());
+        });
+        tableVersions.touch(TableVersions.PRODUCT);
+        changeFeed.publish(productChange(old, previousIdStock, saved, idStock));
+        return saved;
+    }
+
+    private static ChangeEvent productChange(Product old, Long previousIdStock, Product saved, Long idStock) {
+        if (old == null) {
+            return ChangeEvent.product(ChangeEvent.Type.PRODUCT_CREATED, saved, idStock, null);
+        }
+        if (!idStock.equals(previousIdStock)) {
+            return ChangeEvent.product(ChangeEvent.Type.PRODUCT_STOCK_ASSIGNED, saved, idStock, previousIdStock);
+        }
+        boolean onlyQuantity = Objects.equals(old.getTitle(), saved.getTitle()) && old.getPrice() == saved.getPrice()
+                && old.getCategory() == saved.getCategory();
+        return ChangeEvent.product(onlyQuantity && old.getQuantity() != saved.getQuantity()
+                ? ChangeEvent.Type.PRODUCT_QUANTITY_CHANGED : ChangeEvent.Type.PRODUCT_UPDATED, saved, idStock, null);
+    }
+
+    // fills the cache : on the primary, see CacheConfig
+    @Override
+    @Transactional
+    @Cacheable(CacheConfig.PRODUCTS)
+    public ProductView retrieveProduct(Long id) {
+        return productRepository.findById(id).map(ProductView::from).orElseThrow(() -> new NullPointerException("Product not found"));
     }
 
+    // fills the cache : on the primary, see CacheConfig
     @Override
-    public Product retrieveProduct(Long id) {
-        return productRepository.findById(id).orElseThrow(() -> new NullPointerException("Product not found"));
+    @Transactional
+    public List<BatchEntry<ProductView>> retrieveProducts(Collection<Long> ids) {
+        List<Long> distinct = BatchLookup.distinctIds(ids);
+        return BatchLookup.inRequestOrder(distinct, BatchLookup.cachedOrLoaded(distinct, cacheManager.getCache(CacheConfig.PRODUCTS),
+                ProductView.class, misses -> BatchLookup.views(productRepository.findAllById(misses), ProductView::from),
+                ProductView::getIdProduct));
     }
 
     @Override
-    public List<Product> retreiveAllProduct() {
-        return productRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<Product> retreiveAllProduct(Long after, int size) {
+        return productRepository.findByIdProductGreaterThanOrderByIdProductAsc(cursor(after), page(size));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Product> retrieveProductByCategory(ProductCategory category) {
         return productRepository.findByCategory(category);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<Product> searchProducts(String query, ProductCategory category, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Invalid limit:" + limit);
+        }
+        List<Long> ids = productSearchIndex.search(query, category, Math.min(limit, MAX_SEARCH_RESULTS));
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllById(ids).forEach(product -> products.put(product.getIdProduct(), product));
+        List<Product> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (products.containsKey(id)) {
+                result.add(products.get(id));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional
+    @CacheEvict(value = CacheConfig.PRODUCTS, key = "#id")
     public void deleteProduct(Long id) {
-        productRepository.deleteById(id);
+        inventoryCounters.forget(id);
+        Product product = productRepository.findById(id).orElseThrow(() -> new NullPointerException("Product not found"));
+        productRepository.delete(product);
+        AfterCommit.run(() -> productSearchIndex.remove(product.getIdProduct(), product.getTitle(), product.getCategory()));
+        tableVersions.touch(TableVersions.PRODUCT);
+        changeFeed.publish(ChangeEvent.product(ChangeEvent.Type.PRODUCT_DELETED, product,
+                product.getStock() == null ? null : product.getStock().getIdStock(), null));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Product> retreiveProductStock(Long id, Long after, int size) {
+        return productRepository.findByStockIdStockAndIdProductGreaterThanOrderByIdProductAsc(id, cursor(after), page(size));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllProduct(Consumer<Product> consumer) {
+        try (Stream<Product> products = productRepository.streamAll()) {
+            products.forEach(product -> emit(product, consumer));
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamProductStock(Long id, Consumer<Product> consumer) {
+        try (Stream<Product> products = productRepository.streamByStock(id)) {
+            products.forEach(product -> emit(product, consumer));
+        }
+    }
+
+    @Override
+    public ProductQuantity reserveQuantity(Long id, int quantity) {
+        return inventoryCounters.reserve(id, quantity);
     }
 
     @Override
-    public List<Product> retreiveProductStock(Long id) {
-        return productRepository.findByStockIdStock(id);
+    public ProductQuantity releaseQuantity(Long id, int quantity) {
+        return inventoryCounters.release(id, quantity);
+    }
+
+    @Override
+    public ProductImportReport importProducts(BufferedReader reader, boolean ndjson, int batchSize) throws IOException {
+        if (batchSize <= 0 || batchSize > MAX_IMPORT_BATCH_SIZE) {
+            throw new IllegalArgumentException("Invalid batch size:" + batchSize);
+        }
+        long start = System.currentTimeMillis();
+        Long lastIdBeforeImport = productRepository.findMaxIdProduct();
+        Map<Long, Boolean> knownStocks = new HashMap<>();
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        List<String> rejections = new ArrayList<>();
+        long imported = 0;
+        long rejected = 0;
+        long lineNumber = 0;
+        Map<String, Integer> header = null;
+        if (!ndjson) {
+            header = csvHeader(reader.readLine());
+            lineNumber++;
+        }
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                Object[] row = ndjson ? ndjsonRow(line) : csvRow(line, header);
+                Long idStock = (Long) row[4];
+                // each stock is looked up once per import
+                if (!knownStocks.computeIfAbsent(idStock, stockRepository::existsById)) {
+                    throw new IllegalArgumentException("stock not found " + idStock);
+                }
+                batch.add(row);
+            } catch (IllegalArgumentException | IOException e) {
+                rejected++;
+                if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                    rejections.add("line " + lineNumber + " : " + e.getMessage());
+                }
+            }
+            if (batch.size() == batchSize) {
+                imported += insertBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            imported += insertBatch(batch);
+        }
+        // the JDBC batches do not return the generated ids : index whatever was inserted since the import started
+        productSearchIndex.indexAfter(lastIdBeforeImport);
+        long elapsed = System.currentTimeMillis() - start;
+        double rowsPerSecond = imported * 1000.0 / Math.max(elapsed, 1);
+        log.info("Product import : {} rows imported, {} rejected in {} ms ({} rows/s)", imported, rejected, elapsed, (long) rowsPerSecond);
+        return new ProductImportReport(imported, rejected, rejections, elapsed, rowsPerSecond);
+    }
+
+    private int insertBatch(List<Object[]> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_PRODUCT, batch);
+            tableVersions.touch(TableVersions.PRODUCT);
+            changeFeed.publish(ChangeEvent.imported(batch.size()));
+        });
+        return batch.size();
+    }
+
+    private Object[] ndjsonRow(String line) throws IOException {
+        JsonNode node = objectMapper.readTree(line);
+        String[] values = new String[IMPORT_COLUMNS.length];
+        for (int i = 0; i < IMPORT_COLUMNS.length; i++) {
+            JsonNode value = node.get(IMPORT_COLUMNS[i]);
+            values[i] = value == null || value.isNull() ? null : value.asText();
+        }
+        return toRow(values);
+    }
+
+    private static Map<String, Integer> csvHeader(String line) {
+        if (line == null) {
+            throw new IllegalArgumentException("Missing CSV header");
+        }
+        Map<String, Integer> header = new HashMap<>();
+        List<String> names = splitCsv(line);
+        for (int i = 0; i < names.size(); i++) {
+            header.put(names.get(i).trim(), i);
+        }
+        for (String column : IMPORT_COLUMNS) {
+            if (!header.containsKey(column)) {
+                throw new IllegalArgumentException("Missing CSV column:" + column);
+            }
+        }
+        return header;
+    }
+
+    private static Object[] csvRow(String line, Map<String, Integer> header) {
+        List<String> cells = splitCsv(line);
+        String[] values = new String[IMPORT_COLUMNS.length];
+        for (int i = 0; i < IMPORT_COLUMNS.length; i++) {
+            int index = header.get(IMPORT_COLUMNS[i]);
+            values[i] = index < cells.size() ? cells.get(index) : null;
+        }
+        return toRow(values);
+    }
+
+    // title, price, quantity, category, stockId : the INSERT_PRODUCT parameters
+    private static Object[] toRow(String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null || values[i].trim().isEmpty()) {
+                throw new IllegalArgumentException("missing " + IMPORT_COLUMNS[i]);
+            }
+        }
+        return new Object[]{
+                values[0].trim(),
+                Float.parseFloat(values[1].trim()),
+                Integer.parseInt(values[2].trim()),
+                ProductCategory.valueOf(values[3].trim().toUpperCase()).name(),
+                Long.parseLong(values[4].trim())
+        };
+    }
+
+    // RFC 4180 cells on a single line : quoted cells may hold commas and "" escaped quotes
+    private static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    // detach once written so the persistence context does not grow with the table
+    private void emit(Product product, Consumer<Product> consumer) {
+        consumer.accept(product);
+        entityManager.detach(product);
+    }
+
+    private static Long cursor(Long after) {
+        return after == null ? 0L : after;
+    }
+
+    private static PageRequest page(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Invalid page size:" + size);
+        }
+        return PageRequest.of(0, Math.min(size, MAX_PAGE_SIZE));
     }
 }
@@ -1,7 +1,15 @@
 package tn.esprit.devops_project.services;
 
 import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.devops_project.config.CacheConfig;
+import tn.esprit.devops_project.dto.ChangeEvent;
+import tn.esprit.devops_project.dto.InventoryValuation;
+import tn.esprit.devops_project.dto.StockView;
+import tn.esprit.devops_project.repositories.ProductRepository;
 import tn.esprit.devops_project.services.Iservices.IStockService;
 import tn.esprit.devops_project.entities.Stock;
 import tn.esprit.devops_project.repositories.StockRepository;
@@ -13,20 +21,42 @@ import java.util.List;
 public class StockServiceImpl implements IStockService {
 
    private final StockRepository stockRepository;
+   private final ProductRepository productRepository;
+   private final TableVersions tableVersions;
+   private final ChangeFeed changeFeed;
 
     @Override
+    @CacheEvict(value = CacheConfig.STOCKS, key = "#result.idStock")
     public Stock addStock(Stock stock) {
-        return stockRepository.save(stock);
+        boolean created = stock.getIdStock() == 0;
+        Stock saved = stockRepository.save(stock);
+        tableVersions.touch(TableVersions.STOCK);
+        changeFeed.publish(ChangeEvent.stock(created ? ChangeEvent.Type.STOCK_CREATED : ChangeEvent.Type.STOCK_UPDATED,
+                new StockView(saved.getIdStock(), saved.getTitle())));
+        return saved;
     }
 
+    // fills the cache : on the primary, see CacheConfig
     @Override
-    public Stock retrieveStock(Long id) {
-        return stockRepository.findById(id).orElseThrow(() -> new NullPointerException("Stock not found"));
+    @Transactional
+    @Cacheable(CacheConfig.STOCKS)
+    public StockView retrieveStock(Long id) {
+        return stockRepository.findViewById(id).orElseThrow(() -> new NullPointerException("Stock not found"));
     }
 
     @Override
-    public List<Stock> retrieveAllStock() {
-        return stockRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<StockView> retrieveAllStock() {
+        return stockRepository.findAllViews();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<InventoryValuation> retrieveInventoryValuation(Long idStock) {
+        if (idStock != null && !stockRepository.existsById(idStock)) {
+            throw new NullPointerException("Stock not found");
+        }
+        return idStock == null ? productRepository.getInventoryValuation() : productRepository.getInventoryValuation(idStock);
     }
 
 
@@ -2,11 +2,20 @@ package tn.esprit.devops_project.services;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.devops_project.config.CacheConfig;
+import tn.esprit.devops_project.dto.BatchEntry;
+import tn.esprit.devops_project.dto.SupplierCategoryStats;
+import tn.esprit.devops_project.dto.SupplierView;
 import tn.esprit.devops_project.entities.Supplier;
 import tn.esprit.devops_project.repositories.SupplierRepository;
 import tn.esprit.devops_project.services.Iservices.ISupplierService;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -16,34 +25,63 @@ import java.util.List;
 public class SupplierServiceImpl implements ISupplierService {
 
 	SupplierRepository supplierRepository;
+	TableVersions tableVersions;
+	CacheManager cacheManager;
+	SupplierStatistics supplierStatistics;
 
 	@Override
+	@Transactional(readOnly = true)
 	public List<Supplier> retrieveAllSuppliers() {
 		return supplierRepository.findAll();
 	}
 
 
 	@Override
+	@CacheEvict(value = CacheConfig.SUPPLIERS, key = "#result.idSupplier")
 	public Supplier addSupplier(Supplier supplier) {
-		return supplierRepository.save(supplier);
+		Supplier saved = supplierRepository.save(supplier);
+		tableVersions.touch(TableVersions.SUPPLIER);
+		return saved;
 	}
 
 	@Override
+	@CacheEvict(value = CacheConfig.SUPPLIERS, key = "#result.idSupplier")
 	public Supplier updateSupplier(Supplier supplier) {
-		return  supplierRepository.save(supplier);
+		Supplier saved = supplierRepository.save(supplier);
+		tableVersions.touch(TableVersions.SUPPLIER);
+		return saved;
 	}
 
 	@Override
-	public void deleteSupplier(Long SupplierId) {
-		supplierRepository.deleteById(SupplierId);
-
+	@CacheEvict(CacheConfig.SUPPLIERS)
+	public void deleteSupplier(Long supplierId) {
+		supplierRepository.deleteById(supplierId);
+		tableVersions.touch(TableVersions.SUPPLIER);
 	}
 
+	// fills the cache : on the primary, see CacheConfig
 	@Override
-	public Supplier retrieveSupplier(Long supplierId) {
+	@Transactional
+	@Cacheable(CacheConfig.SUPPLIERS)
+	public SupplierView retrieveSupplier(Long supplierId) {
+
+		return supplierRepository.findById(supplierId).map(SupplierView::from).orElseThrow(() -> new IllegalArgumentException("Invalid user Id:" + supplierId));
+	}
 
-		return supplierRepository.findById(supplierId).orElseThrow(() -> new IllegalArgumentException("Invalid user Id:" + supplierId));
+	// fills the cache : on the primary, see CacheConfig
+	@Override
+	@Transactional
+	public List<BatchEntry<SupplierView>> retrieveSuppliers(Collection<Long> ids) {
+		List<Long> distinct = BatchLookup.distinctIds(ids);
+		return BatchLookup.inRequestOrder(distinct, BatchLookup.cachedOrLoaded(distinct, cacheManager.getCache(CacheConfig.SUPPLIERS),
+				SupplierView.class, misses -> BatchLookup.views(supplierRepository.findAllById(misses), SupplierView::from),
+				SupplierView::getIdSupplier));
 	}
 
+	// no transaction : SupplierStatistics queries the primary in transactions of its own
+	@Override
+	public List<SupplierCategoryStats> retrieveSupplierStatistics() {
+		return supplierStatistics.current();
+	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,211 @@
+package tn.esprit.devops_project.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.devops_project.dto.SupplierCategoryStats;
+import tn.esprit.devops_project.dto.SupplierStats;
+import tn.esprit.devops_project.entities.Invoice;
+import tn.esprit.devops_project.entities.Supplier;
+import tn.esprit.devops_project.entities.SupplierCategory;
+import tn.esprit.devops_project.repositories.SupplierRepository;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Invoice figures per supplier, split by {@link SupplierCategory}, kept in memory between two reads :
+ * <ul>
+ * <li>the first read runs one grouped aggregate over every supplier;</li>
+ * <li>every entity level write on an {@link Invoice} or a {@link Supplier} marks its supplier(s) dirty once committed,
+ * JPQL bulk updates bypass Hibernate events and call {@link #invalidate(Collection)} themselves;</li>
+ * <li>the next read aggregates the dirty suppliers only, in one query, and reuses the other rows.</li>
+ * </ul>
+ * A read without dirty supplier runs no query at all. A write outside JPA (the data generator) calls {@link #invalidateAll()}.
+ * The queries run on the primary : a lagging replica would hand back the figures from before the write that marked the
+ * supplier dirty, and they would be kept until its next write. Writes this instance cannot see (another instance, a
+ * script) are caught up by a full reload once the rows are older than app.supplier-statistics.max-age.
+ */
+@Component
+// registered at startup even with lazy initialization : no write may go unseen before the first read
+@Lazy(false)
+@Slf4j
+public class SupplierStatistics implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+	private final SupplierRepository supplierRepository;
+	private final EntityManagerFactory entityManagerFactory;
+	private final TransactionTemplate primary;
+	private final long maxAgeMillis;
+
+	private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+	// guarded by this, the snapshot is rebuilt from it whenever a row changes
+	private final Map<Long, SupplierStats> suppliers = new HashMap<>();
+	// bumped by invalidateAll, the rows are reloaded when they belong to an older generation
+	private final AtomicLong generation = new AtomicLong();
+	private volatile long loadedGeneration = -1;
+	private volatile long loadedAt;
+	private volatile List<SupplierCategoryStats> snapshot = Collections.emptyList();
+
+	public SupplierStatistics(SupplierRepository supplierRepository, EntityManagerFactory entityManagerFactory,
+							  PlatformTransactionManager transactionManager,
+							  @Value("${app.supplier-statistics.max-age:10m}") Duration maxAge) {
+		this.supplierRepository = supplierRepository;
+		this.entityManagerFactory = entityManagerFactory;
+		// not read-only : routed to the primary, whatever the transaction of the caller
+		this.primary = new TransactionTemplate(transactionManager);
+		this.primary.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.maxAgeMillis = maxAge.toMillis();
+	}
+
+	@PostConstruct
+	void register() {
+		EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+				.getServiceRegistry().getService(EventListenerRegistry.class);
+		registry.appendListeners(EventType.POST_INSERT, this);
+		registry.appendListeners(EventType.POST_UPDATE, this);
+		registry.appendListeners(EventType.POST_DELETE, this);
+	}
+
+	public List<SupplierCategoryStats> current() {
+		if (!reloadNeeded() && dirty.isEmpty()) {
+			return snapshot;
+		}
+		synchronized (this) {
+			long start = System.currentTimeMillis();
+			long target = generation.get();
+			if (reloadNeeded()) {
+				// cleared before the query : a write committed while loading is picked up by the next read
+				dirty.clear();
+				suppliers.clear();
+				primary.execute(status -> supplierRepository.getStatistics())
+						.forEach(stats -> suppliers.put(stats.getIdSupplier(), stats));
+				loadedGeneration = target;
+				loadedAt = start;
+				log.info("Supplier statistics loaded : {} suppliers in {} ms", suppliers.size(), System.currentTimeMillis() - start);
+			} else if (!dirty.isEmpty()) {
+				List<Long> ids = new ArrayList<>(dirty);
+				dirty.removeAll(ids);
+				List<SupplierStats> fresh;
+				try {
+					fresh = primary.execute(status -> supplierRepository.getStatistics(ids));
+				} catch (RuntimeException e) {
+					dirty.addAll(ids);
+					throw e;
+				}
+				// a deleted supplier has no row anymore
+				ids.forEach(suppliers::remove);
+				fresh.forEach(stats -> suppliers.put(stats.getIdSupplier(), stats));
+				log.debug("Supplier statistics refreshed : {} suppliers in {} ms", ids.size(), System.currentTimeMillis() - start);
+			} else {
+				return snapshot;
+			}
+			snapshot = byCategory(suppliers.values());
+			return snapshot;
+		}
+	}
+
+	public void invalidate(Collection<Long> idSuppliers) {
+		List<Long> ids = idSuppliers.stream().filter(Objects::nonNull).collect(Collectors.toList());
+		if (!ids.isEmpty()) {
+			AfterCommit.run(() -> dirty.addAll(ids));
+		}
+	}
+
+	public void invalidateAll() {
+		AfterCommit.run(generation::incrementAndGet);
+	}
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		changed(event.getEntity(), null);
+	}
+
+	// the supplier of an invoice may have changed : both are refreshed
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		Supplier oldSupplier = null;
+		if (event.getEntity() instanceof Invoice) {
+			if (event.getOldState() == null) {
+				log.warn("No previous state for invoice {}, supplier statistics reloaded", ((Invoice) event.getEntity()).getIdInvoice());
+				invalidateAll();
+				return;
+			}
+			oldSupplier = (Supplier) event.getOldState()[Arrays.asList(event.getPersister().getPropertyNames()).indexOf("supplier")];
+		}
+		changed(event.getEntity(), oldSupplier);
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		changed(event.getEntity(), null);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return false;
+	}
+
+	// zero max-age : no reload on age
+	private boolean reloadNeeded() {
+		return loadedGeneration != generation.get()
+				|| (maxAgeMillis > 0 && System.currentTimeMillis() - loadedAt > maxAgeMillis);
+	}
+
+	private void changed(Object entity, Supplier oldSupplier) {
+		if (entity instanceof Invoice) {
+			invalidate(Arrays.asList(idSupplier(((Invoice) entity).getSupplier()), idSupplier(oldSupplier)));
+		} else if (entity instanceof Supplier) {
+			invalidate(Collections.singletonList(((Supplier) entity).getIdSupplier()));
+		}
+	}
+
+	// the supplier of an invoice is a lazy proxy : its id is read without loading it
+	private static Long idSupplier(Supplier supplier) {
+		if (supplier instanceof HibernateProxy) {
+			return (Long) ((HibernateProxy) supplier).getHibernateLazyInitializer().getIdentifier();
+		}
+		return supplier == null ? null : supplier.getIdSupplier();
+	}
+
+	private static List<SupplierCategoryStats> byCategory(Collection<SupplierStats> rows) {
+		// suppliers without category last
+		Map<SupplierCategory, List<SupplierStats>> categories = new TreeMap<>(Comparator.nullsLast(Comparator.naturalOrder()));
+		rows.stream().sorted(Comparator.comparing(SupplierStats::getIdSupplier))
+				.forEach(stats -> categories.computeIfAbsent(stats.getSupplierCategory(), c -> new ArrayList<>()).add(stats));
+		List<SupplierCategoryStats> result = new ArrayList<>();
+		categories.forEach((category, members) -> {
+			long invoiceCount = 0;
+			double totalAmountInvoice = 0;
+			double totalAmountDiscount = 0;
+			Date lastInvoiceDate = null;
+			for (SupplierStats stats : members) {
+				invoiceCount += stats.getInvoiceCount();
+				totalAmountInvoice += stats.getTotalAmountInvoice();
+				totalAmountDiscount += stats.getTotalAmountDiscount();
+				if (stats.getLastInvoiceDate() != null
+						&& (lastInvoiceDate == null || stats.getLastInvoiceDate().after(lastInvoiceDate))) {
+					lastInvoiceDate = stats.getLastInvoiceDate();
+				}
+			}
+			result.add(new SupplierCategoryStats(category, members.size(), invoiceCount, totalAmountInvoice,
+					totalAmountDiscount, lastInvoiceDate, Collections.unmodifiableList(members)));
+		});
+		return Collections.unmodifiableList(result);
+	}
+
+}
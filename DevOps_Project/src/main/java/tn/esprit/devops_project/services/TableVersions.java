@@ -0,0 +1,79 @@
+package tn.esprit.devops_project.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.devops_project.config.ReadYourWrites;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Version per table (table_version), bumped by the service layer on every write and used as the ETag of the list
+ * endpoints : an unchanged version answers 304 without reading the entity tables.
+ * The versions live in the database, so every instance hands out the same ETag for the same rows. They are bumped
+ * once the write has committed, each in its own short transaction : the version row is locked for the update alone,
+ * not for the length of every write transaction of the table. A reader never sees the new version along with the old
+ * rows, on the primary or on a replica; it may see the new rows under the old version for a moment, which the bump
+ * then invalidates. A bump lost to a crash right after the commit leaves the old ETag until the next write of the table.
+ * The ETags are weak : Tomcat compresses those, and the same rows may be serialized differently.
+ */
+@Slf4j
+@Component
+public class TableVersions {
+
+    public static final String PRODUCT = "product";
+    public static final String STOCK = "stock";
+    public static final String SUPPLIER = "supplier";
+    public static final String INVOICE = "invoice";
+    public static final String OPERATOR = "operator";
+
+    static final String BUMP = "update table_version set version = version + 1 where table_name = ?";
+    static final String VERSIONS = "select table_name, version from table_version";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate bumpTemplate;
+
+    public TableVersions(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        // a new transaction : the one of the write is still bound to the thread while its afterCommit callbacks run
+        this.bumpTemplate = new TransactionTemplate(transactionManager);
+        this.bumpTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // after the commit of the write, or right away without one
+    public void touch(String... tables) {
+        AfterCommit.run(() -> {
+            for (String table : tables) {
+                try {
+                    bumpTemplate.executeWithoutResult(status -> jdbcTemplate.update(BUMP, table));
+                } catch (RuntimeException e) {
+                    // the write is committed already : its ETag stays stale until the next bump of the table
+                    log.error("Version bump of {} failed", table, e);
+                }
+            }
+            // the reads of the client stay on the primary until the replicas have the write
+            ReadYourWrites.written();
+        });
+    }
+
+    // read-only : routed like the list read that follows
+    @Transactional(readOnly = true)
+    public String etag(String... tables) {
+        Map<String, Long> versions = new HashMap<>();
+        jdbcTemplate.query(VERSIONS, row -> {
+            versions.put(row.getString(1), row.getLong(2));
+        });
+        StringBuilder etag = new StringBuilder("W/\"");
+        for (String table : tables) {
+            etag.append(table).append('.').append(versions.getOrDefault(table, 0L)).append('-');
+        }
+        etag.setLength(etag.length() - 1);
+        return etag.append('"').toString();
+    }
+
+}
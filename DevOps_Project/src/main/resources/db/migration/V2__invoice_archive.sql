@@ -0,0 +1,4 @@
+-- cold tables of InvoiceArchiveJob. "if not exists" : a database baselined at version 1 may already have them,
+-- created by ddl-auto=update
+create table if not exists invoice_archive (id_invoice bigint not null, amount_discount float not null, amount_invoice float not null, archived_at datetime(6), date_creation_invoice date, date_last_modification_invoice date, id_operator bigint, id_supplier bigint, primary key (id_invoice)) engine=InnoDB;
+create table if not exists invoice_detail_archive (id_invoice_detail bigint not null, id_invoice bigint, id_product bigint, price float not null, quantity integer not null, primary key (id_invoice_detail), index idx_invoice_detail_archive_invoice (id_invoice)) engine=InnoDB;
@@ -0,0 +1,17 @@
+-- one index per access path of the repository queries, checked by explain/QueryPlanCheckTest on every mvn test
+
+-- InvoiceRepository.getTotalAmountInvoiceBetweenDates, getAmountPerDay, retrieveArchivedInvoiceIds and the sales of
+-- a period in InvoiceDetailRepository : equality on archived, range on the date, the amount read from the index
+create index idx_invoice_archived_date on invoice (archived, date_creation_invoice, amount_invoice);
+
+-- InvoiceRepository.retrieveInvoicesBySupplier : keyset on id_invoice within the active invoices of one supplier
+create index idx_invoice_supplier_archived on invoice (supplier_id_supplier, archived, id_invoice);
+
+-- sales of a period : the lines of each invoice found above, product, quantity and price read from the index
+create index idx_invoice_detail_invoice on invoice_detail (invoice_id_invoice, product_id_product, quantity, price);
+
+-- ProductRepository.findByCategory
+create index idx_product_category on product (category);
+
+-- ProductRepository.findByStockIdStock, the keyset and streamed reads of one stock, getInventoryValuation
+create index idx_product_stock on product (stock_id_stock, id_product);
@@ -0,0 +1,6 @@
+-- InvoiceRepository.streamLines : range on the date, archived or not
+create index idx_invoice_date on invoice (date_creation_invoice, id_invoice);
+
+-- InvoiceArchiveRepository.streamLines and streamLinesOfSupplier : the same export over the cold tables
+create index idx_invoice_archive_date on invoice_archive (date_creation_invoice, id_invoice);
+create index idx_invoice_archive_supplier on invoice_archive (id_supplier, date_creation_invoice);
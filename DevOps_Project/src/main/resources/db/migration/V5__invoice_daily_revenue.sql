@@ -0,0 +1,11 @@
+-- rollup of InvoiceRevenueRollupListener. Not in V1 : a database baselined at version 1 never runs it.
+-- "if not exists" : a database created by ddl-auto=update may already have it
+create table if not exists invoice_daily_revenue (revenue_date date not null, amount double precision not null, primary key (revenue_date)) engine=InnoDB;
+
+-- filled from the invoices already there (same query as InvoiceDailyRevenueRepository.rebuildFromInvoices), the listener
+-- keeps it in step from then on. An invoice written outside JPA is not seen : it must be followed by POST /invoice/price/rollup
+delete from invoice_daily_revenue;
+insert into invoice_daily_revenue (revenue_date, amount)
+select date_creation_invoice, sum(amount_invoice) from invoice
+where archived = false and date_creation_invoice is not null
+group by date_creation_invoice;
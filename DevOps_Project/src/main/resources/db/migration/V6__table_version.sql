@@ -0,0 +1,6 @@
+-- versions of TableVersions, one row per table behind a list endpoint. Bumped once every write made through the
+-- services has committed, in a short transaction of its own per table, by every instance : a write outside them
+-- (by hand, a script) must bump the version of its tables too, or clients keep their cached lists
+create table table_version (table_name varchar(32) not null, version bigint not null, primary key (table_name)) engine=InnoDB;
+
+insert into table_version (table_name, version) values ('product', 0), ('stock', 0), ('supplier', 0), ('invoice', 0), ('operator', 0);
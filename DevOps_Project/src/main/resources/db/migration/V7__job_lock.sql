@@ -0,0 +1,4 @@
+-- leases of the jobs run by one instance at a time (InvoiceArchiveJob), taken and given back by conditional updates
+create table job_lock (name varchar(64) not null, locked_until datetime(6) not null, locked_by varchar(255), primary key (name)) engine=InnoDB;
+
+insert into job_lock (name, locked_until) values ('invoice-archive', '1970-01-01 00:00:00');
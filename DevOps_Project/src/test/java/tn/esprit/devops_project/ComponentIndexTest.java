@@ -0,0 +1,63 @@
+package tn.esprit.devops_project;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.index.CandidateComponentsIndex;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.core.type.filter.TypeFilter;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.Entity;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// once a META-INF/spring.components is on the classpath, scanning reads the index only : a component, entity or
+// repository it does not list, from a jar built without the indexer for instance, would be skipped without a word
+class ComponentIndexTest {
+
+    static final String BASE_PACKAGE = "tn.esprit.devops_project";
+
+    @Test
+    void everyScannedTypeIsIndexed() throws IOException {
+        CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(getClass().getClassLoader());
+        assertNotNull(index, "No META-INF/spring.components on the classpath");
+        List<String> missing = new ArrayList<>();
+        missing.addAll(missing(index, Component.class, new AnnotationTypeFilter(Component.class)));
+        missing.addAll(missing(index, Entity.class, new AnnotationTypeFilter(Entity.class)));
+        missing.addAll(missing(index, Repository.class, new AssignableTypeFilter(Repository.class)));
+
+        assertTrue(missing.isEmpty(), "Not in the component index : " + missing);
+    }
+
+    // the whole classpath but the test classes, which the application never scans
+    private List<String> missing(CandidateComponentsIndex index, Class<?> stereotype, TypeFilter filter) throws IOException {
+        Set<String> indexed = index.getCandidateTypes(BASE_PACKAGE, stereotype.getName());
+        String testClasses = getClass().getProtectionDomain().getCodeSource().getLocation().toString();
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        MetadataReaderFactory readers = new CachingMetadataReaderFactory(resolver);
+        List<String> missing = new ArrayList<>();
+        for (Resource resource : resolver.getResources("classpath*:" + BASE_PACKAGE.replace('.', '/') + "/**/*.class")) {
+            if (resource.getURL().toString().startsWith(testClasses)) {
+                continue;
+            }
+            MetadataReader reader = readers.getMetadataReader(resource);
+            String type = reader.getClassMetadata().getClassName();
+            if (filter.match(reader, readers) && !indexed.contains(type)) {
+                missing.add(stereotype.getSimpleName() + " " + type);
+            }
+        }
+        return missing;
+    }
+
+}
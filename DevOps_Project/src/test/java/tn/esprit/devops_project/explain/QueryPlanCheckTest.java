@@ -0,0 +1,197 @@
+package tn.esprit.devops_project.explain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.devops_project.repositories.FullScan;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every query method of every repository once, in a transaction rolled back afterwards, then EXPLAINs each
+ * statement it issued with the same bound values, and fails when one of them reads a whole table
+ * (in the H2 plan a {@code tableScan} or an index walked without condition, in the MySQL plan a {@code type = ALL} row).
+ * Queries reading a whole table on purpose are annotated {@link FullScan}.
+ * <p>
+ * Runs on the in-memory H2 database of the "test" profile, against MySQL with
+ * {@code mvn test -Dtest=QueryPlanCheckTest -Dspring.datasource.url=jdbc:mysql://...}.
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class QueryPlanCheckTest {
+
+    // a table followed by a plan comment without condition : "table" "alias" /* schema.table.tableScan */ or /* schema.index */
+    private static final Pattern H2_FULL_SCAN = Pattern.compile("\"(\\w+)\"(?: \"\\w+\")?\\s*/\\* [\\w.]+ \\*/");
+
+    @Autowired
+    ApplicationContext context;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    DataSource dataSource;
+
+    @TestConfiguration
+    static class Recording {
+
+        @Bean
+        static BeanPostProcessor statementRecorder() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource && !(bean instanceof StatementRecorder)
+                            ? new StatementRecorder((DataSource) bean) : bean;
+                }
+            };
+        }
+
+    }
+
+    @Test
+    void repositoryQueriesDoNotReadWholeTables() throws SQLException {
+        Repositories repositories = new Repositories(context);
+        List<String> failures = new ArrayList<>();
+        int checked = 0;
+        for (Class<?> domainType : repositories) {
+            RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+            Object repository = repositories.getRepositoryFor(domainType).orElseThrow();
+            for (Method method : information.getQueryMethods()) {
+                String name = information.getRepositoryInterface().getSimpleName() + "." + method.getName();
+                if (method.isAnnotationPresent(FullScan.class)) {
+                    log.info("{} : full scan expected, {}", name, method.getAnnotation(FullScan.class).value());
+                    continue;
+                }
+                checked++;
+                failures.addAll(check(name, repository, method));
+            }
+        }
+        log.info("Query plans : {} repository queries checked, {} problems", checked, failures.size());
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    private List<String> check(String name, Object repository, Method method) throws SQLException {
+        List<Throwable> error = new ArrayList<>();
+        List<StatementRecorder.Recorded> statements = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            StatementRecorder.start();
+            try {
+                consume(method.invoke(repository, arguments(method)));
+            } catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+                error.add(e.getCause() == null ? e : e.getCause());
+            }
+            return StatementRecorder.stop();
+        });
+        // a query failing on the generated arguments (a null sum into a float...) has still been run
+        if (statements.isEmpty()) {
+            return Collections.singletonList(name + " : not run" + (error.isEmpty() ? "" : ", " + error.get(0)));
+        }
+        List<String> failures = new ArrayList<>();
+        for (StatementRecorder.Recorded statement : statements) {
+            Set<String> scanned = explain(statement);
+            if (scanned.isEmpty()) {
+                log.info("{} : indexed, {}", name, statement.sql);
+            } else {
+                failures.add(name + " : full scan of " + scanned + " in " + statement.sql);
+            }
+        }
+        return failures;
+    }
+
+    // the recorder only wraps the connections, the EXPLAIN itself runs on an unwrapped one
+    private Set<String> explain(StatementRecorder.Recorded statement) throws SQLException {
+        DataSource target = dataSource instanceof StatementRecorder
+                ? ((StatementRecorder) dataSource).getTargetDataSource() : dataSource;
+        try (Connection connection = target.getConnection();
+             PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql)) {
+            for (StatementRecorder.Binding binding : statement.bindings) {
+                binding.bind(explain);
+            }
+            boolean h2 = connection.getMetaData().getDatabaseProductName().equals("H2");
+            Set<String> scanned = new TreeSet<>();
+            try (ResultSet plan = explain.executeQuery()) {
+                while (plan.next()) {
+                    if (h2) {
+                        log.debug("{}", plan.getString(1));
+                        // a min or max answered from the end of an index is a "direct lookup", not a scan
+                        Matcher matcher = H2_FULL_SCAN.matcher(plan.getString(1));
+                        while (!plan.getString(1).contains("/* direct lookup */") && matcher.find()) {
+                            scanned.add(matcher.group(1));
+                        }
+                    } else if ("ALL".equals(plan.getString("type"))) {
+                        scanned.add(plan.getString("table"));
+                    }
+                }
+            }
+            return scanned;
+        }
+    }
+
+    // one value per parameter type : the ids, dates and categories only have to lead the optimizer to an access path
+    private static Object[] arguments(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        Object[] arguments = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            arguments[i] = argument(types[i]);
+        }
+        return arguments;
+    }
+
+    private static Object argument(Class<?> type) {
+        if (type == Long.class || type == long.class) {
+            return 1L;
+        } else if (type == Integer.class || type == int.class) {
+            return 1;
+        } else if (type == Double.class || type == double.class) {
+            return 1.0;
+        } else if (type == Float.class || type == float.class) {
+            return 1.0f;
+        } else if (type == Boolean.class || type == boolean.class) {
+            return false;
+        } else if (type == String.class) {
+            return "a";
+        } else if (type == Date.class) {
+            return new Date();
+        } else if (Collection.class.isAssignableFrom(type)) {
+            return Arrays.asList(1L, 2L);
+        } else if (Pageable.class.isAssignableFrom(type)) {
+            return PageRequest.of(0, 10);
+        } else if (type.isEnum()) {
+            return type.getEnumConstants()[0];
+        }
+        return null;
+    }
+
+    // a stream only runs its query when it is read
+    private static void consume(Object result) {
+        if (result instanceof Stream) {
+            try (Stream<?> stream = (Stream<?>) result) {
+                stream.forEach(row -> {
+                });
+            }
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+package tn.esprit.devops_project.explain;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records the prepared statements run on the current thread between {@link #start()} and {@link #stop()}, with the
+ * values bound to their parameters, so they can be explained afterwards exactly as they were run.
+ */
+class StatementRecorder extends DelegatingDataSource {
+
+    private static final ThreadLocal<List<Recorded>> RECORDED = new ThreadLocal<>();
+
+    StatementRecorder(DataSource target) {
+        super(target);
+    }
+
+    static void start() {
+        RECORDED.set(new ArrayList<>());
+    }
+
+    static List<Recorded> stop() {
+        List<Recorded> recorded = RECORDED.get();
+        RECORDED.remove();
+        return recorded;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(super.getConnection(username, password));
+    }
+
+    private static Connection connection(Connection connection) {
+        return proxy(Connection.class, connection, (method, args, result) ->
+                method.getName().equals("prepareStatement") && args[0] instanceof String
+                        ? statement((PreparedStatement) result, (String) args[0]) : result);
+    }
+
+    private static PreparedStatement statement(PreparedStatement statement, String sql) {
+        List<Binding> bindings = new ArrayList<>();
+        return proxy(PreparedStatement.class, statement, new Interception() {
+            @Override
+            public void before(Method method, Object[] args) {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    bindings.add(new Binding(method, args.clone()));
+                } else if (name.equals("clearParameters")) {
+                    bindings.clear();
+                } else if ((name.startsWith("execute") || name.equals("addBatch")) && (args == null || args.length == 0)) {
+                    List<Recorded> recorded = RECORDED.get();
+                    if (recorded != null) {
+                        recorded.add(new Recorded(sql, new ArrayList<>(bindings)));
+                    }
+                }
+            }
+
+            @Override
+            public Object after(Method method, Object[] args, Object result) {
+                return result;
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Interception interception) {
+        return (T) Proxy.newProxyInstance(StatementRecorder.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            interception.before(method, args);
+            try {
+                return interception.after(method, args, method.invoke(target, args));
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private interface Interception {
+
+        default void before(Method method, Object[] args) {
+        }
+
+        Object after(Method method, Object[] args, Object result) throws SQLException;
+
+    }
+
+    static final class Binding {
+
+        final Method setter;
+        final Object[] args;
+
+        Binding(Method setter, Object[] args) {
+            this.setter = setter;
+            this.args = args;
+        }
+
+        void bind(PreparedStatement statement) throws SQLException {
+            try {
+                setter.invoke(statement, args);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new SQLException("Cannot bind " + Arrays.toString(args), e);
+            }
+        }
+
+    }
+
+    static final class Recorded {
+
+        final String sql;
+        final List<Binding> bindings;
+
+        Recorded(String sql, List<Binding> bindings) {
+            this.sql = sql;
+            this.bindings = bindings;
+        }
+
+    }
+
+}
@@ -0,0 +1,130 @@
+package tn.esprit.devops_project.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.devops_project.entities.Product;
+import tn.esprit.devops_project.entities.ProductCategory;
+import tn.esprit.devops_project.repositories.ProductRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// write-behind, flushed by forget only : the scheduled flush never comes within a test
+@SpringBootTest(properties = {"app.inventory.durability=WRITE_BEHIND", "app.inventory.flush-interval=1h"})
+@ActiveProfiles("test")
+class InventoryCountersTest {
+
+    @Autowired
+    InventoryCounters inventoryCounters;
+    @Autowired
+    ProductRepository productRepository;
+    @Autowired
+    TableVersions tableVersions;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void movementsAreWrittenBackOnFlush() {
+        Long id = product(10);
+
+        inventoryCounters.reserve(id, 3);
+        assertEquals(8, inventoryCounters.release(id, 1).getQuantity());
+        assertEquals(10, quantity(id));
+        String before = tableVersions.etag(TableVersions.PRODUCT);
+
+        inventoryCounters.forget(id);
+
+        assertEquals(8, quantity(id));
+        assertNotEquals(before, tableVersions.etag(TableVersions.PRODUCT));
+    }
+
+    @Test
+    void quantityNeverGoesBelowZero() {
+        Long id = product(2);
+
+        inventoryCounters.reserve(id, 2);
+        assertThrows(IllegalArgumentException.class, () -> inventoryCounters.reserve(id, 1));
+        inventoryCounters.forget(id);
+
+        assertEquals(0, quantity(id));
+    }
+
+    @Test
+    void concurrentReservationsTakeExactlyTheStock() throws Exception {
+        Long id = product(500);
+        AtomicInteger reserved = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        try {
+                            inventoryCounters.reserve(id, 1);
+                            reserved.incrementAndGet();
+                        } catch (IllegalArgumentException e) {
+                            // sold out
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        inventoryCounters.forget(id);
+
+        assertEquals(500, reserved.get());
+        assertEquals(0, quantity(id));
+    }
+
+    @Test
+    void flushAddsTheMovementsToTheDatabaseQuantity() {
+        Long id = product(10);
+
+        inventoryCounters.reserve(id, 3);
+        // another instance, or a JPA write, in between
+        jdbcTemplate.update("update product set quantity = quantity + 5 where id_product = ?", id);
+        inventoryCounters.forget(id);
+
+        assertEquals(12, quantity(id));
+    }
+
+    @Test
+    void flushBelowZeroIsRefusedAndTheCounterReloaded() {
+        Long id = product(10);
+
+        inventoryCounters.reserve(id, 8);
+        jdbcTemplate.update("update product set quantity = 5 where id_product = ?", id);
+        inventoryCounters.forget(id);
+
+        assertEquals(5, quantity(id));
+        assertEquals(4, inventoryCounters.reserve(id, 1).getQuantity());
+    }
+
+    @Test
+    void unknownProductIsNotFound() {
+        assertThrows(NullPointerException.class, () -> inventoryCounters.reserve(-1L, 1));
+    }
+
+    private Long product(int quantity) {
+        return productRepository.save(new Product(null, "counted item", 10, quantity, ProductCategory.ELECTRONICS, null))
+                .getIdProduct();
+    }
+
+    private int quantity(Long id) {
+        return jdbcTemplate.queryForObject("select quantity from product where id_product = ?", Integer.class, id);
+    }
+
+}
@@ -0,0 +1,101 @@
+package tn.esprit.devops_project.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.devops_project.dto.BatchEntry;
+import tn.esprit.devops_project.dto.InvoiceArchiveReport;
+import tn.esprit.devops_project.dto.InvoiceView;
+import tn.esprit.devops_project.entities.Invoice;
+import tn.esprit.devops_project.entities.InvoiceDetail;
+import tn.esprit.devops_project.entities.Operator;
+import tn.esprit.devops_project.repositories.InvoiceDetailRepository;
+import tn.esprit.devops_project.repositories.InvoiceRepository;
+import tn.esprit.devops_project.repositories.OperatorRepository;
+import tn.esprit.devops_project.services.Iservices.IInvoiceService;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class InvoiceArchiveJobTest {
+
+    @Autowired
+    InvoiceArchiveJob invoiceArchiveJob;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    IInvoiceService invoiceService;
+    @Autowired
+    InvoiceRepository invoiceRepository;
+    @Autowired
+    InvoiceDetailRepository invoiceDetailRepository;
+    @Autowired
+    OperatorRepository operatorRepository;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    // created in 1985 : before the cutoffs of the lock tests too, and on no day of the other test classes
+    @Test
+    void archivedInvoiceMovesToTheColdTablesAndIsStillFoundById() {
+        Long idOperator = operatorRepository.save(new Operator(null, "archive", "operator", "secret", null)).getIdOperateur();
+        Invoice invoice = invoiceRepository.save(new Invoice(null, 2, 40, Date.valueOf("1985-01-01"), null, false, null, null));
+        Long id = invoice.getIdInvoice();
+        Long idDetail = invoiceDetailRepository.save(new InvoiceDetail(null, 3, 12.5f, null, invoice)).getIdInvoiceDetail();
+        invoiceService.assignOperatorToInvoices(idOperator, Collections.singletonList(id));
+        transactionTemplate.executeWithoutResult(status -> invoiceRepository.findById(id).orElseThrow().setArchived(true));
+
+        InvoiceArchiveReport report = invoiceService.archiveInvoices(Date.valueOf("1985-01-02"), 100);
+
+        assertTrue(report.getInvoices() >= 1);
+        assertEquals(0, count("select count(*) from invoice where id_invoice = ?", id));
+        assertEquals(0, count("select count(*) from invoice_detail where invoice_id_invoice = ?", id));
+        assertEquals(0, count("select count(*) from operator_invoices where invoices_id_invoice = ?", id));
+        assertEquals(idOperator, jdbcTemplate.queryForObject("select id_operator from invoice_archive where id_invoice = ?",
+                Long.class, id));
+
+        InvoiceView archived = invoiceService.retrieveInvoice(id);
+        assertTrue(archived.getArchived());
+        assertEquals(40, archived.getAmountInvoice());
+        assertEquals(1, archived.getInvoiceDetails().size());
+        assertEquals(idDetail, archived.getInvoiceDetails().get(0).getIdInvoiceDetail());
+        assertEquals(3, archived.getInvoiceDetails().get(0).getQuantity());
+
+        List<BatchEntry<InvoiceView>> batch = invoiceService.retrieveInvoices(Collections.singletonList(id));
+        assertTrue(batch.get(0).isFound());
+        assertEquals(1, batch.get(0).getValue().getInvoiceDetails().size());
+    }
+
+    @Test
+    void runsOneAfterTheOther() {
+        Date before = Date.valueOf("1990-01-01");
+
+        invoiceArchiveJob.run(before, 100);
+
+        assertEquals(0, invoiceArchiveJob.run(before, 100).getInvoices());
+    }
+
+    @Test
+    void runIsSkippedWhileAnotherInstanceHoldsTheLock() {
+        jdbcTemplate.update("update job_lock set locked_until = ?, locked_by = 'other' where name = ?",
+                new Timestamp(System.currentTimeMillis() + 60_000), InvoiceArchiveJob.LOCK_NAME);
+        try {
+            assertThrows(IllegalStateException.class, () -> invoiceArchiveJob.run(Date.valueOf("1990-01-01"), 100));
+        } finally {
+            jdbcTemplate.update("update job_lock set locked_until = ? where name = ?", new Timestamp(0), InvoiceArchiveJob.LOCK_NAME);
+        }
+    }
+
+    private long count(String sql, Long id) {
+        return jdbcTemplate.queryForObject(sql, Long.class, id);
+    }
+
+}
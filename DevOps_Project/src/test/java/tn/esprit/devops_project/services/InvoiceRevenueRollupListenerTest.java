@@ -0,0 +1,109 @@
+package tn.esprit.devops_project.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.devops_project.dto.BulkCancelRequest;
+import tn.esprit.devops_project.entities.Invoice;
+import tn.esprit.devops_project.repositories.InvoiceRepository;
+import tn.esprit.devops_project.services.Iservices.IInvoiceService;
+
+import java.sql.Date;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// each test works on days of its own : the in-memory database is shared by the test classes
+@SpringBootTest
+@ActiveProfiles("test")
+class InvoiceRevenueRollupListenerTest {
+
+    @Autowired
+    InvoiceRepository invoiceRepository;
+    @Autowired
+    IInvoiceService invoiceService;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void insertsAddToTheirDay() {
+        Date day = Date.valueOf("2031-01-01");
+
+        save(100, day, false);
+        save(50, day, false);
+        save(70, day, true);
+
+        assertEquals(150, rollup(day));
+        assertEquals(150, invoiceService.getTotalAmountInvoiceBetweenDates(day, day));
+    }
+
+    @Test
+    void updateMovesTheAmountBetweenDays() {
+        Date day = Date.valueOf("2031-02-01");
+        Date nextDay = Date.valueOf("2031-02-02");
+        Long id = save(100, day, false).getIdInvoice();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Invoice invoice = invoiceRepository.findById(id).orElseThrow();
+            invoice.setAmountInvoice(80);
+            invoice.setDateCreationInvoice(nextDay);
+        });
+
+        assertEquals(0, rollup(day));
+        assertEquals(80, rollup(nextDay));
+    }
+
+    @Test
+    void archivedAndDeletedInvoicesLeaveTheirDay() {
+        Date day = Date.valueOf("2031-03-01");
+        Long archived = save(40, day, false).getIdInvoice();
+        Long deleted = save(30, day, false).getIdInvoice();
+        save(20, day, false);
+
+        transactionTemplate.executeWithoutResult(status -> invoiceRepository.findById(archived).orElseThrow().setArchived(true));
+        invoiceRepository.deleteById(deleted);
+
+        assertEquals(20, rollup(day));
+    }
+
+    @Test
+    void bulkCancelAdjustsTheRollup() {
+        Date day = Date.valueOf("2031-04-01");
+        Long first = save(40, day, false).getIdInvoice();
+        Long second = save(30, day, false).getIdInvoice();
+        save(20, day, false);
+
+        invoiceService.cancelInvoices(new BulkCancelRequest(Arrays.asList(first, second), null, null, null, null));
+
+        assertEquals(20, rollup(day));
+    }
+
+    @Test
+    void overlappingCancelsSubtractEachInvoiceOnce() {
+        Date day = Date.valueOf("2031-07-01");
+        Long first = save(40, day, false).getIdInvoice();
+        Long second = save(30, day, false).getIdInvoice();
+        save(20, day, false);
+
+        invoiceService.cancelInvoices(new BulkCancelRequest(Arrays.asList(first, second), null, null, null, null));
+        invoiceService.cancelInvoice(first);
+        invoiceService.cancelInvoices(new BulkCancelRequest(Arrays.asList(first, second), null, null, null, null));
+
+        assertEquals(20, rollup(day));
+    }
+
+    private Invoice save(float amount, Date day, boolean archived) {
+        return invoiceRepository.save(new Invoice(null, 0, amount, day, null, archived, null, null));
+    }
+
+    private double rollup(Date day) {
+        return jdbcTemplate.queryForObject("select coalesce(sum(amount), 0) from invoice_daily_revenue where revenue_date = ?",
+                Double.class, day);
+    }
+
+}
@@ -0,0 +1,56 @@
+package tn.esprit.devops_project.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.devops_project.dto.OperatorAssignmentReport;
+import tn.esprit.devops_project.entities.Invoice;
+import tn.esprit.devops_project.entities.Operator;
+import tn.esprit.devops_project.repositories.InvoiceRepository;
+import tn.esprit.devops_project.repositories.OperatorRepository;
+import tn.esprit.devops_project.services.Iservices.IInvoiceService;
+
+import java.sql.Date;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class InvoiceServiceImplTest {
+
+    @Autowired
+    IInvoiceService invoiceService;
+    @Autowired
+    InvoiceRepository invoiceRepository;
+    @Autowired
+    OperatorRepository operatorRepository;
+    @Autowired
+    TableVersions tableVersions;
+
+    @Test
+    void assignmentChangesTheInvoiceAndOperatorEtags() {
+        Long idOperator = operatorRepository.save(new Operator(null, "first", "last", "secret", null)).getIdOperateur();
+        Long first = save().getIdInvoice();
+        Long second = save().getIdInvoice();
+        String before = tableVersions.etag(TableVersions.INVOICE, TableVersions.OPERATOR);
+
+        OperatorAssignmentReport report = invoiceService.assignOperatorToInvoices(idOperator, Arrays.asList(first, second));
+
+        assertEquals(2, report.getAssigned());
+        String assigned = tableVersions.etag(TableVersions.INVOICE, TableVersions.OPERATOR);
+        assertNotEquals(before, assigned);
+
+        // nothing new to assign : nothing written
+        report = invoiceService.assignOperatorToInvoices(idOperator, Arrays.asList(first, second));
+
+        assertEquals(Arrays.asList(first, second), report.getAlreadyAssigned());
+        assertEquals(assigned, tableVersions.etag(TableVersions.INVOICE, TableVersions.OPERATOR));
+    }
+
+    private Invoice save() {
+        return invoiceRepository.save(new Invoice(null, 0, 10, Date.valueOf("2031-06-01"), null, false, null, null));
+    }
+
+}
@@ -0,0 +1,88 @@
+package tn.esprit.devops_project.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tn.esprit.devops_project.entities.ProductCategory;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// add, remove and search only : no repository behind the index
+class ProductSearchIndexTest {
+
+    ProductSearchIndex index;
+
+    @BeforeEach
+    void products() {
+        index = new ProductSearchIndex(null, null);
+        index.add(1L, "Smart phone", ProductCategory.ELECTRONICS);
+        index.add(2L, "Smartwatch pro", ProductCategory.ELECTRONICS);
+        index.add(3L, "Smart guide", ProductCategory.BOOKS);
+        index.add(4L, "Phone case", ProductCategory.ELECTRONICS);
+        index.add(5L, "Lamp", ProductCategory.ELECTRONICS);
+    }
+
+    @Test
+    void wholeToken() {
+        assertEquals(Arrays.asList(1L, 4L), index.search("phone", null, 10));
+    }
+
+    @Test
+    void prefixMatchesEveryTokenStartingWithIt() {
+        // smart and smartwatch, product 1 held by a single token
+        assertEquals(Arrays.asList(1L, 2L, 3L), index.search("sma", null, 10));
+    }
+
+    @Test
+    void everyQueryTokenMustMatch() {
+        assertEquals(Collections.singletonList(1L), index.search("smart ph", null, 10));
+        assertEquals(Collections.emptyList(), index.search("smart lamp", null, 10));
+        assertEquals(Collections.emptyList(), index.search("unknown", null, 10));
+    }
+
+    @Test
+    void categoryRestrictsTheMatches() {
+        assertEquals(Collections.singletonList(3L), index.search("smart", ProductCategory.BOOKS, 10));
+        assertEquals(Arrays.asList(1L, 2L, 4L, 5L), index.search("", ProductCategory.ELECTRONICS, 10));
+        assertEquals(Collections.emptyList(), index.search("", ProductCategory.CLOTHING, 10));
+        // the category name is a token of its products too
+        assertEquals(Collections.singletonList(3L), index.search("book", null, 10));
+    }
+
+    @Test
+    void limitKeepsTheLowestIds() {
+        assertEquals(Arrays.asList(1L, 2L), index.search("s", null, 2));
+        assertEquals(Collections.singletonList(1L), index.search("", ProductCategory.ELECTRONICS, 1));
+    }
+
+    @Test
+    void removedProductIsNotFound() {
+        index.remove(1L, "Smart phone", ProductCategory.ELECTRONICS);
+
+        assertEquals(Collections.singletonList(4L), index.search("phone", null, 10));
+        assertEquals(Arrays.asList(2L, 3L), index.search("sma", null, 10));
+        assertEquals(Arrays.asList(2L, 4L, 5L), index.search("", ProductCategory.ELECTRONICS, 10));
+    }
+
+    @Test
+    void renamedProductIsFoundUnderItsNewTitle() {
+        index.remove(5L, "Lamp", ProductCategory.ELECTRONICS);
+        index.add(5L, "Desk lamp", ProductCategory.ELECTRONICS);
+
+        assertEquals(Collections.singletonList(5L), index.search("desk", null, 10));
+        assertEquals(Collections.singletonList(5L), index.search("lamp", null, 10));
+    }
+
+    @Test
+    void unionOfManyTokensLeapfrogsToTheCommonIds() {
+        for (long id = 10; id < 1010; id++) {
+            index.add(id, "item" + id + (id % 100 == 0 ? " rare" : ""), ProductCategory.CLOTHING);
+        }
+
+        assertEquals(Arrays.asList(100L, 200L, 300L), index.search("item rare", null, 3));
+        assertEquals(Arrays.asList(10L, 11L), index.search("item", ProductCategory.CLOTHING, 2));
+    }
+
+}
@@ -0,0 +1,126 @@
+package tn.esprit.devops_project.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.devops_project.dto.ChangeEvent;
+import tn.esprit.devops_project.entities.InvoiceDetail;
+import tn.esprit.devops_project.entities.Product;
+import tn.esprit.devops_project.entities.ProductCategory;
+import tn.esprit.devops_project.entities.Stock;
+import tn.esprit.devops_project.repositories.InvoiceDetailRepository;
+import tn.esprit.devops_project.repositories.StockRepository;
+import tn.esprit.devops_project.services.Iservices.IProductService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductServiceImplTest {
+
+    @Autowired
+    IProductService productService;
+    @Autowired
+    StockRepository stockRepository;
+    @Autowired
+    InvoiceDetailRepository invoiceDetailRepository;
+    @SpyBean
+    ChangeFeed changeFeed;
+
+    long first;
+    long second;
+
+    @BeforeEach
+    void stocks() {
+        first = stockRepository.save(new Stock(0, "first", null)).getIdStock();
+        second = stockRepository.save(new Stock(0, "second", null)).getIdStock();
+    }
+
+    @Test
+    void newProductIsCreated() {
+        Product product = productService.addProduct(new Product(null, "desk lamp", 10, 3, ProductCategory.ELECTRONICS, null), first);
+
+        ChangeEvent event = lastPublished();
+        assertEquals(ChangeEvent.Type.PRODUCT_CREATED, event.getType());
+        assertEquals(product.getIdProduct(), event.getIdProduct());
+        assertEquals(first, event.getIdStock());
+    }
+
+    @Test
+    void productMovedToAnotherStockIsOnBothStockFeeds() {
+        Product product = productService.addProduct(new Product(null, "desk lamp", 10, 3, ProductCategory.ELECTRONICS, null), first);
+
+        productService.addProduct(new Product(product.getIdProduct(), "desk lamp", 10, 3, ProductCategory.ELECTRONICS, null), second);
+
+        ChangeEvent event = lastPublished();
+        assertEquals(ChangeEvent.Type.PRODUCT_STOCK_ASSIGNED, event.getType());
+        assertEquals(second, event.getIdStock());
+        assertEquals(first, event.getPreviousIdStock());
+        // the filters of /stock/{id}/changes
+        assertTrue(event.concernsStock(first));
+        assertTrue(event.concernsStock(second));
+    }
+
+    @Test
+    void quantityOnlyChangeIsAQuantityChange() {
+        Product product = productService.addProduct(new Product(null, "desk lamp", 10, 3, ProductCategory.ELECTRONICS, null), first);
+
+        productService.addProduct(new Product(product.getIdProduct(), "desk lamp", 10, 9, ProductCategory.ELECTRONICS, null), first);
+
+        ChangeEvent event = lastPublished();
+        assertEquals(ChangeEvent.Type.PRODUCT_QUANTITY_CHANGED, event.getType());
+        assertEquals(9, event.getProduct().getQuantity());
+        assertFalse(event.concernsStock(second));
+    }
+
+    @Test
+    void otherChangeIsAnUpdate() {
+        Product product = productService.addProduct(new Product(null, "desk lamp", 10, 3, ProductCategory.ELECTRONICS, null), first);
+
+        productService.addProduct(new Product(product.getIdProduct(), "desk lamp", 12, 9, ProductCategory.ELECTRONICS, null), first);
+
+        ChangeEvent event = lastPublished();
+        assertEquals(ChangeEvent.Type.PRODUCT_UPDATED, event.getType());
+        assertEquals(12, event.getProduct().getPrice());
+    }
+
+    @Test
+    void savedProductIsSearchable() {
+        Product product = productService.addProduct(new Product(null, "walnut bookshelf", 10, 3, ProductCategory.BOOKS, null), first);
+
+        assertEquals(Collections.singletonList(product.getIdProduct()), ids(productService.searchProducts("walnut", null, 10)));
+    }
+
+    @Test
+    void productLeftInTheIndexWhenItsDeleteRollsBack() {
+        Product product = productService.addProduct(new Product(null, "oak bookshelf", 10, 3, ProductCategory.BOOKS, null), first);
+        invoiceDetailRepository.save(new InvoiceDetail(null, 1, 10, product, null));
+
+        // still referenced by an invoice line
+        assertThrows(DataIntegrityViolationException.class, () -> productService.deleteProduct(product.getIdProduct()));
+
+        assertEquals(Collections.singletonList(product.getIdProduct()), ids(productService.searchProducts("oak", null, 10)));
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getIdProduct).collect(Collectors.toList());
+    }
+
+    private ChangeEvent lastPublished() {
+        ArgumentCaptor<ChangeEvent> events = ArgumentCaptor.forClass(ChangeEvent.class);
+        verify(changeFeed, atLeastOnce()).publish(events.capture());
+        List<ChangeEvent> published = events.getAllValues();
+        return published.get(published.size() - 1);
+    }
+
+}
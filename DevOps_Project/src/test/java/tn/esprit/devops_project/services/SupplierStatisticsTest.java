@@ -0,0 +1,103 @@
+package tn.esprit.devops_project.services;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.devops_project.dto.SupplierStats;
+import tn.esprit.devops_project.entities.Invoice;
+import tn.esprit.devops_project.entities.Supplier;
+import tn.esprit.devops_project.entities.SupplierCategory;
+import tn.esprit.devops_project.repositories.InvoiceRepository;
+import tn.esprit.devops_project.repositories.SupplierRepository;
+
+import java.sql.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+// invoices on days of 2035 : the other test classes of the shared in-memory database own the days of their rollups
+@SpringBootTest(properties = "app.supplier-statistics.max-age=500ms")
+@ActiveProfiles("test")
+class SupplierStatisticsTest {
+
+    @Autowired
+    SupplierStatistics supplierStatistics;
+    @SpyBean
+    SupplierRepository supplierRepository;
+    @Autowired
+    InvoiceRepository invoiceRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void invoicesOfASupplierAreCounted() {
+        Supplier supplier = supplierRepository.save(new Supplier(null, "STAT1", "stat supplier", SupplierCategory.ORDINAIRE, null));
+        assertEquals(0, stats(supplier.getIdSupplier()).getInvoiceCount());
+
+        invoiceRepository.save(new Invoice(null, 5, 100, Date.valueOf("2035-01-01"), null, false, null, supplier));
+        invoiceRepository.save(new Invoice(null, 0, 50, Date.valueOf("2035-01-02"), null, false, null, supplier));
+
+        SupplierStats stats = stats(supplier.getIdSupplier());
+        assertEquals(2, stats.getInvoiceCount());
+        assertEquals(150, stats.getTotalAmountInvoice());
+        assertEquals(5, stats.getTotalAmountDiscount());
+    }
+
+    @Test
+    void writeOutsideJpaIsSeenOnceTheFiguresAreTooOld() throws InterruptedException {
+        Supplier supplier = supplierRepository.save(new Supplier(null, "STAT2", "stat supplier", SupplierCategory.ORDINAIRE, null));
+        assertEquals(0, stats(supplier.getIdSupplier()).getInvoiceCount());
+
+        // no listener sees it, as for a write of another instance
+        jdbcTemplate.update("insert into invoice (amount_discount, amount_invoice, date_creation_invoice, archived,"
+                + " supplier_id_supplier) values (0, 10, ?, false, ?)", Date.valueOf("2035-01-03"), supplier.getIdSupplier());
+
+        // seen at the first refresh past the max age, however slow the runner
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (stats(supplier.getIdSupplier()).getInvoiceCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, stats(supplier.getIdSupplier()).getInvoiceCount());
+    }
+
+    @Test
+    void refreshQueriesLeaveTheReadOnlyTransactionOfTheCaller() {
+        Supplier supplier = supplierRepository.save(new Supplier(null, "STAT3", "stat supplier", SupplierCategory.ORDINAIRE, null));
+        AtomicBoolean readOnly = new AtomicBoolean(true);
+        // the replica routing sends read-only transactions to the replicas
+        // the spy of a repository delegates to it through its default answer
+        Answer<?> repository = mockingDetails(supplierRepository).getMockCreationSettings().getDefaultAnswer();
+        Answer<Object> recordReadOnly = invocation -> {
+            readOnly.set(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            return repository.answer(invocation);
+        };
+        // a full reload when the figures are too old, a refresh of the new supplier otherwise
+        doAnswer(recordReadOnly).when(supplierRepository).getStatistics();
+        doAnswer(recordReadOnly).when(supplierRepository).getStatistics(anyCollection());
+
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransaction.setReadOnly(true);
+        readOnlyTransaction.executeWithoutResult(status -> stats(supplier.getIdSupplier()));
+
+        assertFalse(readOnly.get());
+    }
+
+    private SupplierStats stats(Long idSupplier) {
+        return supplierStatistics.current().stream()
+                .flatMap(category -> category.getSuppliers().stream())
+                .filter(stats -> stats.getIdSupplier().equals(idSupplier))
+                .findFirst().orElseThrow();
+    }
+
+}
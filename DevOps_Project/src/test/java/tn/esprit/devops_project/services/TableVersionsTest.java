@@ -0,0 +1,62 @@
+package tn.esprit.devops_project.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TableVersionsTest {
+
+    @Autowired
+    TableVersions tableVersions;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void etagIsWeakAndNamesEveryTable() {
+        String etag = tableVersions.etag(TableVersions.INVOICE, TableVersions.PRODUCT);
+
+        assertTrue(etag.startsWith("W/\"invoice."), etag);
+        assertTrue(etag.contains("-product."), etag);
+    }
+
+    @Test
+    void committedWriteChangesTheEtag() {
+        String before = tableVersions.etag(TableVersions.STOCK);
+
+        transactionTemplate.executeWithoutResult(status -> tableVersions.touch(TableVersions.STOCK));
+
+        assertNotEquals(before, tableVersions.etag(TableVersions.STOCK));
+    }
+
+    @Test
+    void versionIsBumpedOnlyOnceTheWriteCommits() {
+        String before = tableVersions.etag(TableVersions.SUPPLIER);
+
+        String during = transactionTemplate.execute(status -> {
+            tableVersions.touch(TableVersions.SUPPLIER);
+            return tableVersions.etag(TableVersions.SUPPLIER);
+        });
+
+        assertEquals(before, during);
+        assertNotEquals(before, tableVersions.etag(TableVersions.SUPPLIER));
+    }
+
+    @Test
+    void rolledBackWriteKeepsTheEtag() {
+        String before = tableVersions.etag(TableVersions.OPERATOR);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            tableVersions.touch(TableVersions.OPERATOR);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(before, tableVersions.etag(TableVersions.OPERATOR));
+    }
+
+}